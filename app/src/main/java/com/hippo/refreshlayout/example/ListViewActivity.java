@@ -6,11 +6,11 @@ import android.os.AsyncTask;
 import android.os.Bundle;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.AbsListView;
 import android.widget.BaseAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
 
+import com.hippo.refreshlayout.PaginationController;
 import com.hippo.refreshlayout.RefreshLayout;
 
 import java.util.ArrayList;
@@ -21,7 +21,7 @@ public class ListViewActivity extends Activity {
 
     private final int MAX_PAGE = 3;
 
-    private int mPage;
+    private PaginationController mPagination;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -80,9 +80,8 @@ public class ListViewActivity extends Activity {
 
                     @Override
                     protected void onPostExecute(Void aVoid) {
-                        // Reset page
-                        mPage = 0;
-                        refreshLayout.setEnableSwipeFooter(true);
+                        // Reset page, it enables the footer again
+                        mPagination.reset();
 
                         // Update data
                         data.clear();
@@ -97,53 +96,42 @@ public class ListViewActivity extends Activity {
 
             @Override
             public void onFooterRefresh() {
-                new AsyncTask<Void, Void, Void>() {
-                    @Override
-                    protected Void doInBackground(Void... params) {
-                        // Wait 3 seconds
-                        try {
-                            Thread.sleep(3000);
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                        return null;
-                    }
+                // Pages are loaded by the pagination controller
+            }
+        };
+        refreshLayout.setOnRefreshListener(onRefreshListener);
 
+        // Page 0 is shown, load pages 1 to MAX_PAGE
+        mPagination = new PaginationController(new PaginationController.PageSource() {
+            @Override
+            public Runnable loadPage(final int page) throws Exception {
+                // Wait 3 seconds
+                Thread.sleep(3000);
+                return new Runnable() {
                     @Override
-                    protected void onPostExecute(Void aVoid) {
-                        // Update page
-                        mPage++;
-                        if (mPage >= MAX_PAGE) {
-                            // If you want to refresh the last page,
-                            // comment this line
-                            refreshLayout.setEnableSwipeFooter(false);
-                        }
-
+                    public void run() {
                         // Update data
                         data.addAll(Arrays.asList(Data.DATA));
                         adapter.notifyDataSetChanged();
 
-                        // Cancel refresh
-                        refreshLayout.setFooterRefreshing(false);
+                        if (page >= MAX_PAGE) {
+                            // If you want to refresh the last page,
+                            // comment this line
+                            mPagination.markExhausted();
+                        }
                     }
-                }.execute();
+                };
             }
-        };
-        refreshLayout.setOnRefreshListener(onRefreshListener);
 
-        listView.setOnScrollListener(new AbsListView.OnScrollListener() {
             @Override
-            public void onScrollStateChanged(AbsListView view, int scrollState) {}
-
-            @Override
-            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
-                // Refresh footer immediately when ListView get bottom
-                if (!refreshLayout.isRefreshing() && refreshLayout.isAlmostBottom() && mPage < MAX_PAGE) {
-                    refreshLayout.setFooterRefreshing(true);
-                    onRefreshListener.onFooterRefresh();
-                }
+            public void onPageFailed(int page, Exception e) {
+                e.printStackTrace();
             }
-        });
+        }, 1);
+        refreshLayout.setPaginationController(mPagination);
+
+        // Load next page when 5 items are left below the screen
+        refreshLayout.setFooterPrefetch(RefreshLayout.PREFETCH_ITEMS, 5);
 
         setContentView(refreshLayout);
     }
@@ -1,6 +1,109 @@
 package com.hippo.refreshlayout.example;
 
 import android.app.Activity;
+import android.graphics.Color;
+import android.os.Bundle;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.hippo.refreshlayout.RefreshLayout;
+import com.hippo.refreshlayout.recyclerview.RecyclerViewFooterLoader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class RecyclerViewActivity extends Activity {
+
+    private final int MAX_PAGE = 3;
+
+    private int mPage;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        final List<String> data = new ArrayList<>();
+        data.addAll(Arrays.asList(Data.DATA));
+
+        final RefreshLayout refreshLayout = new RefreshLayout(this);
+        final RecyclerView recyclerView = new RecyclerView(this);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        refreshLayout.addView(recyclerView, ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+
+        refreshLayout.setFooterColorSchemeColors(Color.RED, Color.GREEN, Color.BLUE, Color.CYAN);
+
+        final RecyclerView.Adapter<RecyclerView.ViewHolder> adapter = new RecyclerView.Adapter<RecyclerView.ViewHolder>() {
+            @Override
+            public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+                return new RecyclerView.ViewHolder(getLayoutInflater().inflate(android.R.layout.simple_list_item_1, parent, false)) {};
+            }
+
+            @Override
+            public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+                ((TextView) holder.itemView).setText(data.get(position));
+            }
+
+            @Override
+            public int getItemCount() {
+                return data.size();
+            }
+        };
+        recyclerView.setAdapter(adapter);
+
+        // Loads run on a background thread, the refreshing state is cleared after them
+        refreshLayout.setRefreshSource(new RefreshLayout.RefreshSource() {
+            @Override
+            public Runnable loadHeader() throws Exception {
+                // Wait 3 seconds
+                Thread.sleep(3000);
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        // Reset page
+                        mPage = 0;
+                        refreshLayout.setEnableSwipeFooter(true);
+
+                        // Update data
+                        data.clear();
+                        data.addAll(Arrays.asList(Data.DATA));
+                        adapter.notifyDataSetChanged();
+                    }
+                };
+            }
+
+            @Override
+            public Runnable loadFooter() throws Exception {
+                // Wait 3 seconds
+                Thread.sleep(3000);
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        // Update page
+                        mPage++;
+                        if (mPage >= MAX_PAGE) {
+                            refreshLayout.setEnableSwipeFooter(false);
+                        }
+
+                        // Update data
+                        final int start = data.size();
+                        data.addAll(Arrays.asList(Data.DATA));
+                        adapter.notifyItemRangeInserted(start, Data.DATA.length);
+                    }
+                };
+            }
+
+            @Override
+            public void onRefreshFailed(boolean header, Exception e) {
+                e.printStackTrace();
+            }
+        });
+
+        // Load next page when 5 items are left after the last visible one
+        RecyclerViewFooterLoader.attach(refreshLayout, recyclerView).setThreshold(5);
+
+        setContentView(refreshLayout);
+    }
 }
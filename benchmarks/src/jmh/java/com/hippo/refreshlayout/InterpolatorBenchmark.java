@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.view.animation.Interpolator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baked lookup tables against the exact curves they replace. The exact
+ * curves are the formulas of the framework interpolators, the framework
+ * classes themselves only exist as stubs on a plain JVM.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class InterpolatorBenchmark {
+
+    private static final int FRAMES = 97;
+
+    // DecelerateInterpolator(2f)
+    private static final Interpolator EXACT_DECELERATE = new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            return (float) (1.0f - Math.pow((1.0f - input), 2 * 2f));
+        }
+    };
+
+    // AccelerateInterpolator(1.5f)
+    private static final Interpolator EXACT_ACCELERATE = new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            return (float) Math.pow(input, 2 * 1.5f);
+        }
+    };
+
+    // AccelerateDecelerateInterpolator
+    private static final Interpolator EXACT_ACCELERATE_DECELERATE = new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            return (float) (Math.cos((input + 1) * Math.PI) / 2.0f) + 0.5f;
+        }
+    };
+
+    private static final Interpolator BAKED_DECELERATE =
+            LookupTableInterpolator.bake(EXACT_DECELERATE);
+    private static final Interpolator BAKED_ACCELERATE =
+            LookupTableInterpolator.bake(EXACT_ACCELERATE);
+    private static final Interpolator BAKED_ACCELERATE_DECELERATE =
+            LookupTableInterpolator.bake(EXACT_ACCELERATE_DECELERATE);
+
+    private int mFrame;
+
+    private float nextInput() {
+        mFrame = (mFrame + 1) % FRAMES;
+        return mFrame / (float) FRAMES;
+    }
+
+    @Benchmark
+    public float exactDecelerate() {
+        return EXACT_DECELERATE.getInterpolation(nextInput());
+    }
+
+    @Benchmark
+    public float bakedDecelerate() {
+        return BAKED_DECELERATE.getInterpolation(nextInput());
+    }
+
+    @Benchmark
+    public float exactAccelerate() {
+        return EXACT_ACCELERATE.getInterpolation(nextInput());
+    }
+
+    @Benchmark
+    public float bakedAccelerate() {
+        return BAKED_ACCELERATE.getInterpolation(nextInput());
+    }
+
+    @Benchmark
+    public float exactAccelerateDecelerate() {
+        return EXACT_ACCELERATE_DECELERATE.getInterpolation(nextInput());
+    }
+
+    @Benchmark
+    public float bakedAccelerateDecelerate() {
+        return BAKED_ACCELERATE_DECELERATE.getInterpolation(nextInput());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ring selection of one frame of {@code SwipeProgressBar.draw}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProgressBarRingsBenchmark {
+
+    private static final int ANIMATION_DURATION_MS_PER_COLOR = 500;
+    private static final long FRAME_INTERVAL = 16;
+
+    @Param({"4", "8"})
+    public int colors;
+
+    private long mElapsed;
+
+    @Benchmark
+    public void selectRings(Blackhole bh) {
+        final int duration = colors * ANIMATION_DURATION_MS_PER_COLOR;
+        mElapsed += FRAME_INTERVAL;
+        final long iterations = mElapsed / duration;
+        final float rawProgress = ProgressBarMath.rawProgress(mElapsed % duration,
+                duration, colors);
+        bh.consume(ProgressBarMath.fillColorIndex(iterations, rawProgress, colors));
+        final int phase = ProgressBarMath.phase(rawProgress, colors);
+        if (colors > 1 && phase >= 0) {
+            final int first = phase > 0 && rawProgress == phase ? phase - 1 : phase;
+            for (int ring = first; ring <= phase + 1; ++ring) {
+                bh.consume(ProgressBarMath.ringPercent(rawProgress, ring));
+            }
+        }
+    }
+
+    @Benchmark
+    public float finishPercent() {
+        mElapsed += FRAME_INTERVAL;
+        return ProgressBarMath.finishPercent(mElapsed, 1000);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The trim, rotation and color curves of one frame of the spinning ring,
+ * as applied by {@code MaterialProgressDrawable.setupAnimators}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RingCurvesBenchmark {
+
+    private static final int FRAMES = 83;
+    private static final float STROKE_WIDTH = 7.5f;
+    private static final double CENTER_RADIUS = 22.5;
+    private static final int START_COLOR = 0xff4285f4;
+    private static final int END_COLOR = 0xffdb4437;
+
+    private int mFrame;
+
+    // The time in the cycle of the next frame, 83 frames per 1332 ms cycle
+    private float nextTime() {
+        mFrame = (mFrame + 1) % FRAMES;
+        return mFrame / (float) FRAMES;
+    }
+
+    @Benchmark
+    public void spinFrame(Blackhole bh) {
+        final float interpolatedTime = nextTime();
+        final float minProgressArc = SpinnerMath.minProgressArc(STROKE_WIDTH, CENTER_RADIUS);
+        // The interpolator is an Android class, feed the scaled time instead
+        if (interpolatedTime <= 0.5f) {
+            bh.consume(SpinnerMath.trim(0f, minProgressArc,
+                    SpinnerMath.startTrimTime(interpolatedTime)));
+        } else {
+            bh.consume(SpinnerMath.trim(0f, minProgressArc,
+                    SpinnerMath.endTrimTime(interpolatedTime)));
+        }
+        bh.consume(SpinnerMath.ringRotation(0f, interpolatedTime));
+        bh.consume(SpinnerMath.groupRotation(interpolatedTime, 2));
+        final float colorFraction = SpinnerMath.colorFraction(interpolatedTime);
+        if (colorFraction >= 0) {
+            bh.consume(SpinnerMath.evaluateColorChange(colorFraction, START_COLOR, END_COLOR));
+        }
+    }
+
+    @Benchmark
+    public void finishFrame(Blackhole bh) {
+        final float interpolatedTime = nextTime();
+        final float minProgressArc = SpinnerMath.minProgressArc(STROKE_WIDTH, CENTER_RADIUS);
+        bh.consume(SpinnerMath.finishStartTrim(0.1f, 0.7f, minProgressArc, interpolatedTime));
+        bh.consume(SpinnerMath.finishRotation(0.3f, interpolatedTime));
+        bh.consume(SpinnerMath.evaluateColorChange(interpolatedTime, START_COLOR, END_COLOR));
+    }
+
+    @Benchmark
+    public int evaluateColorChange() {
+        return SpinnerMath.evaluateColorChange(nextTime(), START_COLOR, END_COLOR);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The math of {@code RefreshLayout.moveSpinner} for one drag event.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SpinnerDragBenchmark {
+
+    private static final int SAMPLES = 256;
+    // Default values of a RefreshLayout on a xxhdpi screen
+    private static final float TOTAL_DRAG_DISTANCE = 192f;
+    private static final float SLINGSHOT_DISTANCE = 192f;
+    private static final int ORIGINAL_OFFSET_TOP = -120;
+
+    // Overscrolls from rest to well beyond the trigger distance
+    private final float[] mOverscrolls = new float[SAMPLES];
+    private int mIndex;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < SAMPLES; i++) {
+            mOverscrolls[i] = 3 * TOTAL_DRAG_DISTANCE * i / SAMPLES;
+        }
+    }
+
+    private float nextOverscroll() {
+        mIndex = (mIndex + 1) % SAMPLES;
+        return mOverscrolls[mIndex];
+    }
+
+    @Benchmark
+    public void moveSpinner(Blackhole bh) {
+        final float overscrollTop = nextOverscroll();
+        final float dragPercent = SpinnerMath.dragPercent(overscrollTop, TOTAL_DRAG_DISTANCE);
+        final float adjustedPercent = SpinnerMath.adjustedPercent(dragPercent);
+        final float tensionPercent = SpinnerMath.tensionPercent(overscrollTop,
+                TOTAL_DRAG_DISTANCE, SLINGSHOT_DISTANCE);
+        bh.consume(SpinnerMath.targetOffsetTop(ORIGINAL_OFFSET_TOP, SLINGSHOT_DISTANCE,
+                dragPercent, tensionPercent));
+        bh.consume(SpinnerMath.dragRotation(adjustedPercent, tensionPercent));
+    }
+
+    @Benchmark
+    public float overscrollForOffsetTop() {
+        final float overscrollTop = nextOverscroll();
+        final int offsetTop = SpinnerMath.targetOffsetTop(overscrollTop, ORIGINAL_OFFSET_TOP,
+                TOTAL_DRAG_DISTANCE, SLINGSHOT_DISTANCE);
+        return SpinnerMath.overscrollForOffsetTop(offsetTop, ORIGINAL_OFFSET_TOP,
+                TOTAL_DRAG_DISTANCE, SLINGSHOT_DISTANCE);
+    }
+}
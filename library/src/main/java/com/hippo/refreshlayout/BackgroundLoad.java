@@ -0,0 +1,126 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A load run on an executor, for {@link RefreshPipeline} and
+ * {@link PaginationController}. The result or the error is delivered on
+ * the main thread to {@link #onFinished(Runnable, Exception)}, unless the
+ * load is cancelled first. A load running longer than its timeout is
+ * interrupted and finishes with a {@link TimeoutException}.
+ * <p>
+ * All methods but {@link #call()} must be called on the main thread.
+ * </p>
+ */
+abstract class BackgroundLoad implements Callable<Runnable> {
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private final FutureTask<Runnable> mTask;
+    private FrameEngine.Scheduler mScheduler;
+    // Set on the main thread, a posted result is dropped
+    private boolean mCancelled;
+
+    private final Runnable mTimeoutCallback = new Runnable() {
+        @Override
+        public void run() {
+            cancel();
+            onFinished(null, new TimeoutException());
+        }
+    };
+
+    BackgroundLoad() {
+        mTask = new FutureTask<Runnable>(this) {
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                Runnable result = null;
+                Exception error = null;
+                try {
+                    result = get();
+                } catch (Exception e) {
+                    error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+                final Runnable r = result;
+                final Exception e = error;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(r, e);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Run the load on the executor.
+     *
+     * @param scheduler the scheduler of the timeout
+     * @param timeout the timeout in milliseconds, 0 for none
+     */
+    void start(Executor executor, FrameEngine.Scheduler scheduler, long timeout) {
+        mScheduler = scheduler;
+        if (timeout > 0) {
+            scheduler.postDelayed(mTimeoutCallback, timeout);
+        }
+        executor.execute(mTask);
+    }
+
+    /**
+     * Let the load run as long as it needs.
+     */
+    void clearTimeout() {
+        if (mScheduler != null) {
+            mScheduler.removeCallbacks(mTimeoutCallback);
+        }
+    }
+
+    /**
+     * Interrupt the load, nothing is delivered.
+     */
+    void cancel() {
+        mCancelled = true;
+        clearTimeout();
+        mTask.cancel(true);
+    }
+
+    private void deliver(Runnable result, Exception error) {
+        if (mCancelled) {
+            return;
+        }
+        clearTimeout();
+        onFinished(result, error);
+    }
+
+    /**
+     * Called on the main thread with the result of {@link #call()}, or
+     * with the exception it threw or a {@link TimeoutException}.
+     */
+    protected abstract void onFinished(@Nullable Runnable result, @Nullable Exception error);
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.support.v4.view.ScrollingView;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.widget.NestedScrollView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+import android.widget.ScrollView;
+
+/**
+ * Predicts when the target of {@link RefreshLayout} reaches a boundary,
+ * the bottom for the footer or the top for the header, from its remaining
+ * scroll distance and the speed it shrinks at.
+ * <p>
+ * Items are the children of the target. Scroll containers with one
+ * content child and plain views have no items, a lead in items is
+ * taken in pixels for them.
+ * </p>
+ */
+final class BoundaryPrefetcher {
+
+    static final int NONE = 0;
+    static final int ITEMS = 1;
+    static final int PIXELS = 2;
+    static final int MILLIS = 3;
+
+    /** Returned by {@link #remaining(View)} if the distance is unknown. */
+    static final int UNKNOWN = -1;
+
+    // Weight of the newest sample in the smoothed velocity
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+    // Velocity samples older than it are dropped
+    private static final long MAX_SAMPLE_INTERVAL = 100;
+
+    private final FrameEngine mEngine;
+    // Watch the top for the header instead of the bottom
+    private final boolean mHead;
+    private int mUnit = NONE;
+    private int mLead;
+
+    private int mLastRemaining = UNKNOWN;
+    private long mLastTime;
+    // Pixels per millisecond toward the boundary
+    private float mVelocity;
+
+    BoundaryPrefetcher(FrameEngine engine, boolean head) {
+        mEngine = engine;
+        mHead = head;
+    }
+
+    void setLead(int unit, int lead) {
+        if (unit < NONE || unit > MILLIS) {
+            throw new IllegalStateException("Invalid unit: " + unit);
+        }
+        if (lead < 0) {
+            throw new IllegalStateException("lead < 0");
+        }
+        mUnit = unit;
+        mLead = lead;
+        reset();
+    }
+
+    boolean isEnabled() {
+        return mUnit != NONE;
+    }
+
+    void reset() {
+        mLastRemaining = UNKNOWN;
+        mVelocity = 0.0f;
+    }
+
+    /**
+     * Take a sample of the target scroll position.
+     *
+     * @return {@code true} if the boundary should start loading now.
+     */
+    boolean onScroll(View target) {
+        if (mUnit == NONE || target == null) {
+            return false;
+        }
+
+        final int remaining = mHead ? remainingToTop(target) : remaining(target);
+        if (remaining == UNKNOWN) {
+            reset();
+            return false;
+        }
+
+        final long now = mEngine.getClock().currentTimeMillis();
+        if (mLastRemaining != UNKNOWN) {
+            final long interval = now - mLastTime;
+            if (interval > MAX_SAMPLE_INTERVAL) {
+                mVelocity = 0.0f;
+            } else if (interval > 0) {
+                final float velocity = (float) (mLastRemaining - remaining) / interval;
+                mVelocity += (velocity - mVelocity) * VELOCITY_SMOOTHING;
+            }
+        }
+        mLastRemaining = remaining;
+        mLastTime = now;
+
+        // Never prefetch while moving away from the boundary
+        if (mVelocity < 0.0f) {
+            return false;
+        }
+        switch (mUnit) {
+            case ITEMS:
+                return remaining <= mLead * itemHeight(target);
+            case PIXELS:
+                return remaining <= mLead;
+            case MILLIS:
+                return remaining == 0 || (mVelocity > 0.0f && remaining / mVelocity <= mLead);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return The pixels left to scroll before the target reaches the bottom,
+     *         or {@link #UNKNOWN}.
+     */
+    static int remaining(View target) {
+        if (target instanceof AbsListView) {
+            final AbsListView listView = (AbsListView) target;
+            final int childCount = listView.getChildCount();
+            if (childCount == 0) {
+                return 0;
+            }
+            final int hiddenItems = listView.getCount() - 1 - listView.getLastVisiblePosition();
+            final int bottomOverflow = listView.getChildAt(childCount - 1).getBottom()
+                    - (listView.getHeight() - listView.getPaddingBottom());
+            return Math.max(0, hiddenItems * averageChildHeight(listView) + bottomOverflow);
+        } else if (target instanceof ScrollView) {
+            // Not a ScrollingView, the scroll range comes from its content child
+            final ScrollView scrollView = (ScrollView) target;
+            if (scrollView.getChildCount() == 0) {
+                return 0;
+            }
+            return Math.max(0, scrollView.getChildAt(0).getBottom()
+                    - (scrollView.getHeight() - scrollView.getPaddingBottom())
+                    - scrollView.getScrollY());
+        } else if (target instanceof ScrollingView) {
+            final ScrollingView scrollingView = (ScrollingView) target;
+            final int range = scrollingView.computeVerticalScrollRange()
+                    - scrollingView.computeVerticalScrollExtent();
+            return Math.max(0, range - scrollingView.computeVerticalScrollOffset());
+        } else if (!ViewCompat.canScrollVertically(target, 1)) {
+            return 0;
+        } else {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * @return The pixels left to scroll before the target reaches the top,
+     *         or {@link #UNKNOWN}.
+     */
+    static int remainingToTop(View target) {
+        if (target instanceof AbsListView) {
+            final AbsListView listView = (AbsListView) target;
+            if (listView.getChildCount() == 0) {
+                return 0;
+            }
+            final int hiddenItems = listView.getFirstVisiblePosition();
+            final int topOverflow = listView.getPaddingTop() - listView.getChildAt(0).getTop();
+            return Math.max(0, hiddenItems * averageChildHeight(listView) + topOverflow);
+        } else if (target instanceof ScrollView) {
+            return Math.max(0, target.getScrollY());
+        } else if (target instanceof ScrollingView) {
+            return Math.max(0, ((ScrollingView) target).computeVerticalScrollOffset());
+        } else if (!ViewCompat.canScrollVertically(target, -1)) {
+            return 0;
+        } else {
+            return UNKNOWN;
+        }
+    }
+
+    private static int itemHeight(View target) {
+        // The content child of a scroll container is not an item
+        if (!(target instanceof ViewGroup) || target instanceof ScrollView
+                || target instanceof NestedScrollView) {
+            return 1;
+        }
+        return averageChildHeight(target);
+    }
+
+    private static int averageChildHeight(View target) {
+        if (target instanceof ViewGroup) {
+            final ViewGroup group = (ViewGroup) target;
+            final int count = group.getChildCount();
+            if (count > 0) {
+                int height = 0;
+                for (int i = 0; i < count; i++) {
+                    height += group.getChildAt(i).getHeight();
+                }
+                return height / count;
+            }
+        }
+        return target.getHeight();
+    }
+}
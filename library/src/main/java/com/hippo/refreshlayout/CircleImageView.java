@@ -17,16 +17,13 @@
 package com.hippo.refreshlayout;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.RadialGradient;
-import android.graphics.Shader;
 import android.graphics.drawable.ShapeDrawable;
 import android.graphics.drawable.shapes.OvalShape;
 import android.support.v4.content.ContextCompat;
 import android.support.v4.view.ViewCompat;
-import android.view.animation.Animation;
 import android.widget.ImageView;
 
 /**
@@ -44,9 +41,33 @@ class CircleImageView extends ImageView {
     private static final float SHADOW_RADIUS = 3.5f;
     private static final int SHADOW_ELEVATION = 4;
 
-    private Animation.AnimationListener mListener;
+    private FrameAnimation.Listener mListener;
     int mShadowRadius;
 
+    // Notifies the listener of animations run by FrameEngine
+    final FrameAnimation.Listener mEngineListener = new FrameAnimation.Listener() {
+        @Override
+        public void onAnimationStart(FrameAnimation animation) {
+            if (mListener != null) {
+                mListener.onAnimationStart(animation);
+            }
+        }
+
+        @Override
+        public void onAnimationEnd(FrameAnimation animation) {
+            if (mListener != null) {
+                mListener.onAnimationEnd(animation);
+            }
+        }
+
+        @Override
+        public void onAnimationRepeat(FrameAnimation animation) {
+            if (mListener != null) {
+                mListener.onAnimationRepeat(animation);
+            }
+        }
+    };
+
     CircleImageView(Context context, int color) {
         super(context);
         final float density = getContext().getResources().getDisplayMetrics().density;
@@ -86,7 +107,7 @@ class CircleImageView extends ImageView {
         }
     }
 
-    public void setAnimationListener(Animation.AnimationListener listener) {
+    public void setAnimationListener(FrameAnimation.Listener listener) {
         mListener = listener;
     }
 
@@ -94,7 +115,7 @@ class CircleImageView extends ImageView {
     public void onAnimationStart() {
         super.onAnimationStart();
         if (mListener != null) {
-            mListener.onAnimationStart(getAnimation());
+            mListener.onAnimationStart(FrameAnimation.of(getAnimation()));
         }
     }
 
@@ -102,7 +123,7 @@ class CircleImageView extends ImageView {
     public void onAnimationEnd() {
         super.onAnimationEnd();
         if (mListener != null) {
-            mListener.onAnimationEnd(getAnimation());
+            mListener.onAnimationEnd(FrameAnimation.of(getAnimation()));
         }
     }
 
@@ -123,35 +144,38 @@ class CircleImageView extends ImageView {
     }
 
     private class OvalShadow extends OvalShape {
-        private RadialGradient mRadialGradient;
-        private Paint mShadowPaint;
+        // The fill shadow, shared by all views of the same size
+        private Bitmap mShadowBitmap;
+        private int mDiameter;
 
         OvalShadow(int shadowRadius) {
             super();
-            mShadowPaint = new Paint();
             mShadowRadius = shadowRadius;
-            updateRadialGradient((int) rect().width());
+            mDiameter = (int) rect().width();
         }
 
         @Override
         protected void onResize(float width, float height) {
             super.onResize(width, height);
-            updateRadialGradient((int) width);
+            mDiameter = (int) width;
+            mShadowBitmap = null;
         }
 
         @Override
         public void draw(Canvas canvas, Paint paint) {
             final int viewWidth = CircleImageView.this.getWidth();
             final int viewHeight = CircleImageView.this.getHeight();
-            canvas.drawCircle(viewWidth / 2, viewHeight / 2, viewWidth / 2, mShadowPaint);
+            Bitmap shadow = mShadowBitmap;
+            if (shadow == null || shadow.getWidth() != viewWidth
+                    || shadow.getHeight() != viewHeight) {
+                shadow = ShadowBitmapCache.get(viewWidth, viewHeight, mDiameter, mShadowRadius,
+                        FILL_SHADOW_COLOR);
+                mShadowBitmap = shadow;
+            }
+            if (shadow != null) {
+                canvas.drawBitmap(shadow, 0, 0, null);
+            }
             canvas.drawCircle(viewWidth / 2, viewHeight / 2, viewWidth / 2 - mShadowRadius, paint);
         }
-
-        private void updateRadialGradient(int diameter) {
-            mRadialGradient = new RadialGradient(diameter / 2, diameter / 2,
-                    mShadowRadius, new int[] { FILL_SHADOW_COLOR, Color.TRANSPARENT },
-                    null, Shader.TileMode.CLAMP);
-            mShadowPaint.setShader(mRadialGradient);
-        }
     }
 }
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.support.annotation.VisibleForTesting;
+import android.view.MotionEvent;
+
+/**
+ * Folds the samples of the drag pointer, historical ones included, into
+ * one position per frame, and optionally predicts the position at the
+ * frame time from the pointer velocity.
+ */
+final class DragBatcher {
+
+    // Weight of the newest sample in the smoothed velocity
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+    // Velocity samples older than it are dropped
+    private static final long MAX_SAMPLE_INTERVAL = 100;
+    // Never predict further than it, wrong predictions are visible
+    private static final long MAX_PREDICTION = 20;
+
+    private boolean mPrediction;
+
+    private boolean mHasSample;
+    private float mLastY;
+    private long mLastTime;
+    // Pixels per millisecond
+    private float mVelocity;
+
+    @VisibleForTesting
+    int mSampleCount;
+
+    void setPredictionEnabled(boolean enabled) {
+        mPrediction = enabled;
+    }
+
+    void reset() {
+        mHasSample = false;
+        mVelocity = 0.0f;
+    }
+
+    /**
+     * Add all samples of the pointer in the event, oldest first.
+     */
+    void addSamples(MotionEvent ev, int pointerIndex) {
+        if (pointerIndex < 0) {
+            return;
+        }
+        for (int i = 0, n = ev.getHistorySize(); i < n; i++) {
+            addSample(ev.getHistoricalY(pointerIndex, i), ev.getHistoricalEventTime(i));
+        }
+        addSample(ev.getY(pointerIndex), ev.getEventTime());
+    }
+
+    private void addSample(float y, long time) {
+        mSampleCount++;
+        if (mHasSample) {
+            final long interval = time - mLastTime;
+            if (interval > MAX_SAMPLE_INTERVAL) {
+                mVelocity = 0.0f;
+            } else if (interval > 0) {
+                final float velocity = (y - mLastY) / interval;
+                mVelocity += (velocity - mVelocity) * VELOCITY_SMOOTHING;
+            }
+        }
+        mHasSample = true;
+        mLastY = y;
+        mLastTime = time;
+    }
+
+    boolean hasSample() {
+        return mHasSample;
+    }
+
+    /**
+     * @param frameTime The time of the frame to draw, in
+     *                  {@link android.os.SystemClock#uptimeMillis()} base
+     * @return The latest position, or the predicted one at the frame time
+     *         if prediction is enabled.
+     */
+    float getY(long frameTime) {
+        if (!mPrediction) {
+            return mLastY;
+        }
+        final long ahead = Math.min(frameTime - mLastTime, MAX_PREDICTION);
+        if (ahead <= 0) {
+            return mLastY;
+        }
+        return mLastY + mVelocity * ahead;
+    }
+}
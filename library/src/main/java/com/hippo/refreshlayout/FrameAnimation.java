@@ -0,0 +1,258 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.view.View;
+import android.view.animation.Animation;
+import android.view.animation.Interpolator;
+import android.view.animation.Transformation;
+
+/**
+ * An animation driven by {@link FrameEngine}. It works like
+ * {@link Animation}, but it only applies a value in [0..1] to its
+ * subclass instead of a {@link Transformation} to a view.
+ * <p>
+ * If {@link FrameEngine} is in legacy mode, the animation is run
+ * as an {@link Animation} through {@link #getLegacyAnimation()}.
+ * </p>
+ */
+abstract class FrameAnimation {
+
+    /**
+     * Repeat the animation indefinitely.
+     */
+    static final int INFINITE = Animation.INFINITE;
+
+    private static final int START_ON_FIRST_FRAME = -1;
+
+    // Same as the default interpolator of Animation
+    private static final Interpolator DEFAULT_INTERPOLATOR = Interpolators.ACCELERATE_DECELERATE;
+
+    private long mDuration;
+    private Interpolator mInterpolator = DEFAULT_INTERPOLATOR;
+    private int mRepeatCount;
+    private Listener mListener;
+
+    private long mStartTime = START_ON_FIRST_FRAME;
+    private int mRepeated;
+    private boolean mStarted;
+    private boolean mEnded;
+
+    // The view this animation is run for, null if it is not running in FrameEngine
+    View mHost;
+
+    private LegacyAnimation mLegacyAnimation;
+
+    /**
+     * Apply the interpolated time of this animation.
+     *
+     * @param interpolatedTime The value of the normalized time (0.0 to 1.0)
+     *        after it has been run through the interpolation function.
+     */
+    protected abstract void applyTransformation(float interpolatedTime);
+
+    void setDuration(long duration) {
+        mDuration = duration;
+        if (mLegacyAnimation != null) {
+            mLegacyAnimation.setDuration(duration);
+        }
+    }
+
+    long getDuration() {
+        return mDuration;
+    }
+
+    void setInterpolator(Interpolator interpolator) {
+        mInterpolator = interpolator;
+        if (mLegacyAnimation != null) {
+            mLegacyAnimation.setInterpolator(interpolator);
+        }
+    }
+
+    /**
+     * @param repeatCount How many times the animation should be repeated,
+     *        or {@link #INFINITE}
+     */
+    void setRepeatCount(int repeatCount) {
+        mRepeatCount = repeatCount;
+        if (mLegacyAnimation != null) {
+            mLegacyAnimation.setRepeatCount(repeatCount);
+        }
+    }
+
+    void setAnimationListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Reset the animation so it can be started again.
+     */
+    void reset() {
+        mStartTime = START_ON_FIRST_FRAME;
+        mRepeated = 0;
+        mStarted = false;
+        mEnded = false;
+        if (mLegacyAnimation != null) {
+            mLegacyAnimation.reset();
+        }
+    }
+
+    /**
+     * Stop the animation without notifying the listener.
+     */
+    void cancel() {
+        if (mStarted) {
+            mEnded = true;
+        }
+    }
+
+    boolean hasStarted() {
+        return mStarted;
+    }
+
+    boolean hasEnded() {
+        return mEnded;
+    }
+
+    /**
+     * Advance the animation to the time.
+     *
+     * @return {@code true} if the animation is still running
+     */
+    boolean getTransformation(long currentTime) {
+        if (mStartTime == START_ON_FIRST_FRAME) {
+            mStartTime = currentTime;
+        }
+
+        float normalizedTime;
+        if (mDuration != 0) {
+            normalizedTime = (float) (currentTime - mStartTime) / (float) mDuration;
+        } else {
+            // time is a step-change with a zero duration
+            normalizedTime = currentTime < mStartTime ? 0.0f : 1.0f;
+        }
+        final boolean expired = normalizedTime >= 1.0f;
+        normalizedTime = MathUtils.clamp(normalizedTime, 0.0f, 1.0f);
+
+        if (!mStarted) {
+            dispatchAnimationStart();
+        }
+
+        applyTransformation(mInterpolator.getInterpolation(normalizedTime));
+
+        if (expired) {
+            if (mRepeatCount == mRepeated) {
+                mEnded = true;
+                return false;
+            } else {
+                if (mRepeatCount > 0) {
+                    mRepeated++;
+                }
+                mStartTime = START_ON_FIRST_FRAME;
+                dispatchAnimationRepeat();
+            }
+        }
+        return true;
+    }
+
+    private void dispatchAnimationStart() {
+        mStarted = true;
+        if (mListener != null) {
+            mListener.onAnimationStart(this);
+        }
+    }
+
+    void dispatchAnimationEnd() {
+        mEnded = true;
+        if (mListener != null) {
+            mListener.onAnimationEnd(this);
+        }
+    }
+
+    private void dispatchAnimationRepeat() {
+        if (mListener != null) {
+            mListener.onAnimationRepeat(this);
+        }
+    }
+
+    /**
+     * @return An {@link Animation} applying the same values as this animation.
+     */
+    Animation getLegacyAnimation() {
+        if (mLegacyAnimation == null) {
+            mLegacyAnimation = new LegacyAnimation();
+            mLegacyAnimation.setDuration(mDuration);
+            mLegacyAnimation.setInterpolator(mInterpolator);
+            mLegacyAnimation.setRepeatCount(mRepeatCount);
+            mLegacyAnimation.setRepeatMode(Animation.RESTART);
+        }
+        return mLegacyAnimation;
+    }
+
+    /**
+     * @return The FrameAnimation of the legacy animation, or {@code null}
+     */
+    static FrameAnimation of(Animation animation) {
+        if (animation instanceof LegacyAnimation) {
+            return ((LegacyAnimation) animation).getFrameAnimation();
+        } else {
+            return null;
+        }
+    }
+
+    private class LegacyAnimation extends Animation implements Animation.AnimationListener {
+
+        LegacyAnimation() {
+            setAnimationListener(this);
+        }
+
+        FrameAnimation getFrameAnimation() {
+            return FrameAnimation.this;
+        }
+
+        @Override
+        protected void applyTransformation(float interpolatedTime, Transformation t) {
+            FrameAnimation.this.applyTransformation(interpolatedTime);
+        }
+
+        @Override
+        public void onAnimationStart(Animation animation) {
+            dispatchAnimationStart();
+        }
+
+        @Override
+        public void onAnimationEnd(Animation animation) {
+            dispatchAnimationEnd();
+        }
+
+        @Override
+        public void onAnimationRepeat(Animation animation) {
+            dispatchAnimationRepeat();
+        }
+    }
+
+    /**
+     * Receives notifications from an animation.
+     */
+    interface Listener {
+        void onAnimationStart(FrameAnimation animation);
+
+        void onAnimationEnd(FrameAnimation animation);
+
+        void onAnimationRepeat(FrameAnimation animation);
+    }
+}
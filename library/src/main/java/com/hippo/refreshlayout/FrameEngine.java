@@ -0,0 +1,296 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.os.Build;
+import android.os.Handler;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+import java.util.ArrayList;
+
+/**
+ * Runs all {@link FrameAnimation}s of a {@link RefreshLayout} from one
+ * frame callback. The callback is posted with
+ * {@link ViewCompat#postOnAnimation(View, Runnable)}, which is backed by
+ * Choreographer since API 16.
+ * <p>
+ * All timing of the library goes through the {@link Clock} and the
+ * {@link Scheduler} of the engine, tests can replace both with a clock
+ * that they step by hand.
+ * </p>
+ * <p>
+ * Like {@link View#startAnimation(android.view.animation.Animation)},
+ * a host view runs at most one animation at a time. Unlike it, the host
+ * is not invalidated on each frame, animations must invalidate
+ * what they change. Invalidations through {@link #getInvalidationCoalescer()}
+ * are issued once at the end of the frame.
+ * </p>
+ */
+final class FrameEngine {
+
+    /**
+     * The source of frame time.
+     */
+    interface Clock {
+        /**
+         * @return The current time in milliseconds.
+         */
+        long currentTimeMillis();
+    }
+
+    static final Clock ANIMATION_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return AnimationUtils.currentAnimationTimeMillis();
+        }
+    };
+
+    /**
+     * Runs callbacks on the main thread.
+     */
+    interface Scheduler {
+        /**
+         * Run the callback at the next frame, before the views are drawn.
+         */
+        void postFrameCallback(Runnable callback);
+
+        /**
+         * Run the callback after the delay in milliseconds of the clock.
+         */
+        void postDelayed(Runnable callback, long delayMillis);
+
+        /**
+         * Remove pending runs of the callback.
+         */
+        void removeCallbacks(Runnable callback);
+    }
+
+    /**
+     * A scheduler posting to the view.
+     */
+    static Scheduler viewScheduler(final View view) {
+        return new Scheduler() {
+            @Override
+            public void postFrameCallback(Runnable callback) {
+                ViewCompat.postOnAnimation(view, callback);
+            }
+
+            @Override
+            public void postDelayed(Runnable callback, long delayMillis) {
+                view.postDelayed(callback, delayMillis);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable callback) {
+                view.removeCallbacks(callback);
+            }
+        };
+    }
+
+    /**
+     * A scheduler posting to the handler. Frame callbacks are posted as
+     * plain messages, for work that is not drawn.
+     */
+    static Scheduler handlerScheduler(final Handler handler) {
+        return new Scheduler() {
+            @Override
+            public void postFrameCallback(Runnable callback) {
+                handler.post(callback);
+            }
+
+            @Override
+            public void postDelayed(Runnable callback, long delayMillis) {
+                handler.postDelayed(callback, delayMillis);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable callback) {
+                handler.removeCallbacks(callback);
+            }
+        };
+    }
+
+    private Scheduler mScheduler;
+    private final ArrayList<FrameAnimation> mAnimations = new ArrayList<>();
+    // Animations to run in current frame, reused to avoid allocation
+    private final ArrayList<FrameAnimation> mFrameAnimations = new ArrayList<>();
+    private Clock mClock = ANIMATION_CLOCK;
+    // Run animations as view Animation instead
+    private boolean mLegacy = Build.VERSION.SDK_INT < 16;
+    private boolean mFrameScheduled;
+    private final InvalidationCoalescer mInvalidationCoalescer = new InvalidationCoalescer(this);
+
+    private final Runnable mFrameCallback = new Runnable() {
+        @Override
+        public void run() {
+            mFrameScheduled = false;
+            doFrame();
+        }
+    };
+
+    /**
+     * @param view The view to post frame callbacks to
+     */
+    FrameEngine(View view) {
+        mScheduler = viewScheduler(view);
+    }
+
+    @VisibleForTesting
+    void setClock(Clock clock) {
+        mClock = clock;
+    }
+
+    Clock getClock() {
+        return mClock;
+    }
+
+    /**
+     * Set the scheduler. A scheduled frame is moved to it, other
+     * pending callbacks are not.
+     */
+    @VisibleForTesting
+    void setScheduler(Scheduler scheduler) {
+        if (mFrameScheduled) {
+            mScheduler.removeCallbacks(mFrameCallback);
+            scheduler.postFrameCallback(mFrameCallback);
+        }
+        mScheduler = scheduler;
+    }
+
+    Scheduler getScheduler() {
+        return mScheduler;
+    }
+
+    InvalidationCoalescer getInvalidationCoalescer() {
+        return mInvalidationCoalescer;
+    }
+
+    /**
+     * Set whether animations are run as view {@link android.view.animation.Animation}
+     * on their host views. Running animations are cleared.
+     */
+    void setLegacy(boolean legacy) {
+        if (mLegacy != legacy) {
+            clearAll();
+            mLegacy = legacy;
+        }
+    }
+
+    boolean isLegacy() {
+        return mLegacy;
+    }
+
+    /**
+     * Reset and start the animation for the host view. The current animation
+     * of the host is cleared first.
+     */
+    void start(FrameAnimation animation, View host) {
+        clear(host);
+        if (mLegacy) {
+            animation.reset();
+            host.startAnimation(animation.getLegacyAnimation());
+            return;
+        }
+
+        if (animation.mHost != null) {
+            mAnimations.remove(animation);
+        }
+        animation.reset();
+        animation.mHost = host;
+        mAnimations.add(animation);
+        scheduleFrame();
+    }
+
+    /**
+     * Clear the animation of the host view. Like {@link View#clearAnimation()},
+     * the animation is marked as ended. The animation listener is only
+     * notified in legacy mode.
+     */
+    void clear(View host) {
+        if (mLegacy) {
+            host.clearAnimation();
+        } else {
+            removeHost(host);
+        }
+    }
+
+    private void clearAll() {
+        for (int i = 0, n = mAnimations.size(); i < n; i++) {
+            final FrameAnimation animation = mAnimations.get(i);
+            animation.mHost = null;
+            animation.cancel();
+        }
+        mAnimations.clear();
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            mScheduler.removeCallbacks(mFrameCallback);
+        }
+    }
+
+    private void removeHost(View host) {
+        for (int i = mAnimations.size() - 1; i >= 0; i--) {
+            final FrameAnimation animation = mAnimations.get(i);
+            if (animation.mHost == host) {
+                animation.mHost = null;
+                animation.cancel();
+                mAnimations.remove(i);
+            }
+        }
+    }
+
+    private void scheduleFrame() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            mScheduler.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * Advance all running animations to the time of the clock.
+     */
+    @VisibleForTesting
+    void doFrame() {
+        final long now = mClock.currentTimeMillis();
+        mInvalidationCoalescer.beginFrame();
+        final ArrayList<FrameAnimation> animations = mFrameAnimations;
+        for (int i = 0, n = mAnimations.size(); i < n; i++) {
+            animations.add(mAnimations.get(i));
+        }
+
+        for (int i = 0, n = animations.size(); i < n; i++) {
+            final FrameAnimation animation = animations.get(i);
+            // Listeners might start or clear animations
+            if (animation.mHost == null) {
+                continue;
+            }
+            if (!animation.getTransformation(now)) {
+                animation.mHost = null;
+                mAnimations.remove(animation);
+                animation.dispatchAnimationEnd();
+            }
+        }
+        animations.clear();
+        mInvalidationCoalescer.endFrame();
+
+        if (!mAnimations.isEmpty()) {
+            scheduleFrame();
+        }
+    }
+}
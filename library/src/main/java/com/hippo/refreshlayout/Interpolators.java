@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.support.v4.view.animation.FastOutSlowInInterpolator;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+import android.view.animation.LinearInterpolator;
+
+/**
+ * Interpolators shared by all components. They are stateless, and the
+ * ones which call {@link Math#pow(double, double)} are baked into
+ * {@link LookupTableInterpolator}.
+ */
+final class Interpolators {
+    private Interpolators() {}
+
+    private static final float DECELERATE_INTERPOLATION_FACTOR = 2f;
+    private static final float ACCELERATE_INTERPOLATION_FACTOR = 1.5f;
+
+    static final Interpolator LINEAR = new LinearInterpolator();
+
+    // FastOutSlowInInterpolator is a lookup table itself
+    static final Interpolator FAST_OUT_SLOW_IN = new FastOutSlowInInterpolator();
+
+    static final Interpolator DECELERATE = LookupTableInterpolator.bake(
+            new DecelerateInterpolator(DECELERATE_INTERPOLATION_FACTOR));
+
+    static final Interpolator ACCELERATE = LookupTableInterpolator.bake(
+            new AccelerateInterpolator(ACCELERATE_INTERPOLATION_FACTOR));
+
+    static final Interpolator ACCELERATE_DECELERATE = LookupTableInterpolator.bake(
+            new AccelerateDecelerateInterpolator());
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.VisibleForTesting;
+import android.view.View;
+
+import java.util.ArrayList;
+
+/**
+ * Merges the invalidations of the header spinner, the footer bar and the
+ * layout into at most one invalidation per view and drawable per frame.
+ * Dirty rectangles of a view are united.
+ * <p>
+ * Requests made while the {@link FrameEngine} runs a frame are issued at
+ * the end of that frame. Other requests are issued from one frame
+ * callback, like {@link android.support.v4.view.ViewCompat#postInvalidateOnAnimation(View)}.
+ * All methods must be called on the main thread.
+ * </p>
+ */
+final class InvalidationCoalescer {
+
+    private final FrameEngine mEngine;
+    // Few views per layout, entries are kept and reused
+    private final ArrayList<Entry> mEntries = new ArrayList<>();
+    private final ArrayList<Drawable> mDrawables = new ArrayList<>();
+    private boolean mScheduled;
+    private boolean mInFrame;
+
+    private int mRequestedCount;
+    private int mIssuedCount;
+
+    private final Runnable mFlushCallback = new Runnable() {
+        @Override
+        public void run() {
+            mScheduled = false;
+            flush();
+        }
+    };
+
+    InvalidationCoalescer(FrameEngine engine) {
+        mEngine = engine;
+    }
+
+    /**
+     * Invalidate the whole view at the next frame.
+     */
+    void invalidate(View view) {
+        mRequestedCount++;
+        obtainEntry(view).mFull = true;
+        schedule();
+    }
+
+    /**
+     * Invalidate the rectangle of the view at the next frame.
+     */
+    void invalidate(View view, int left, int top, int right, int bottom) {
+        mRequestedCount++;
+        final Entry entry = obtainEntry(view);
+        if (!entry.mFull) {
+            entry.mDirty.union(left, top, right, bottom);
+        }
+        schedule();
+    }
+
+    void invalidate(View view, Rect rect) {
+        invalidate(view, rect.left, rect.top, rect.right, rect.bottom);
+    }
+
+    /**
+     * Invalidate the drawable through its callback at the next frame.
+     */
+    void invalidateDrawable(Drawable drawable) {
+        mRequestedCount++;
+        if (!mDrawables.contains(drawable)) {
+            mDrawables.add(drawable);
+        }
+        schedule();
+    }
+
+    /**
+     * Called by the engine before it runs the animations of a frame.
+     */
+    void beginFrame() {
+        mInFrame = true;
+    }
+
+    /**
+     * Called by the engine after it ran the animations of a frame,
+     * issues all pending invalidations.
+     */
+    void endFrame() {
+        mInFrame = false;
+        flush();
+    }
+
+    private Entry obtainEntry(View view) {
+        for (int i = 0, n = mEntries.size(); i < n; i++) {
+            final Entry entry = mEntries.get(i);
+            if (entry.mView == view) {
+                return entry;
+            }
+        }
+        final Entry entry = new Entry(view);
+        mEntries.add(entry);
+        return entry;
+    }
+
+    private void schedule() {
+        // The running frame issues them
+        if (!mScheduled && !mInFrame) {
+            mScheduled = true;
+            mEngine.getScheduler().postFrameCallback(mFlushCallback);
+        }
+    }
+
+    private void flush() {
+        for (int i = 0, n = mEntries.size(); i < n; i++) {
+            final Entry entry = mEntries.get(i);
+            if (entry.mFull) {
+                mIssuedCount++;
+                entry.mView.invalidate();
+            } else if (!entry.mDirty.isEmpty()) {
+                mIssuedCount++;
+                final Rect dirty = entry.mDirty;
+                entry.mView.invalidate(dirty.left, dirty.top, dirty.right, dirty.bottom);
+            }
+            entry.mFull = false;
+            entry.mDirty.setEmpty();
+        }
+        for (int i = 0, n = mDrawables.size(); i < n; i++) {
+            final Drawable drawable = mDrawables.get(i);
+            final Drawable.Callback callback = drawable.getCallback();
+            if (callback != null) {
+                mIssuedCount++;
+                callback.invalidateDrawable(drawable);
+            }
+        }
+        mDrawables.clear();
+    }
+
+    /**
+     * @return The number of invalidations requested from the coalescer.
+     */
+    @VisibleForTesting
+    int getRequestedCount() {
+        return mRequestedCount;
+    }
+
+    /**
+     * @return The number of invalidations issued to views and drawables.
+     */
+    @VisibleForTesting
+    int getIssuedCount() {
+        return mIssuedCount;
+    }
+
+    private static final class Entry {
+        final View mView;
+        final Rect mDirty = new Rect();
+        boolean mFull;
+
+        Entry(View view) {
+            mView = view;
+        }
+    }
+}
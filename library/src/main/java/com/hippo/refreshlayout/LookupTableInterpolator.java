@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.view.animation.Interpolator;
+
+/**
+ * An interpolator that uses a lookup table of values sampled at evenly
+ * spaced inputs, values between samples are linearly interpolated.
+ */
+final class LookupTableInterpolator implements Interpolator {
+
+    /**
+     * The default number of samples, the same as the one of
+     * {@link android.support.v4.view.animation.FastOutSlowInInterpolator}.
+     */
+    static final int DEFAULT_SAMPLE_COUNT = 201;
+
+    private final float[] mValues;
+    private final float mStepSize;
+
+    LookupTableInterpolator(float[] values) {
+        if (values == null || values.length < 2) {
+            throw new IllegalStateException("values == null || values.length < 2");
+        }
+        mValues = values;
+        mStepSize = 1f / (mValues.length - 1);
+    }
+
+    /**
+     * Sample the interpolator into a lookup table.
+     */
+    static LookupTableInterpolator bake(Interpolator interpolator, int sampleCount) {
+        final float[] values = new float[sampleCount];
+        final int last = sampleCount - 1;
+        for (int i = 0; i < sampleCount; i++) {
+            values[i] = interpolator.getInterpolation((float) i / last);
+        }
+        return new LookupTableInterpolator(values);
+    }
+
+    static LookupTableInterpolator bake(Interpolator interpolator) {
+        return bake(interpolator, DEFAULT_SAMPLE_COUNT);
+    }
+
+    @Override
+    public float getInterpolation(float input) {
+        if (input >= 1.0f) {
+            return mValues[mValues.length - 1];
+        }
+        if (input <= 0f) {
+            return mValues[0];
+        }
+
+        // Calculate index - We use min with length - 2 to avoid IndexOutOfBoundsException when
+        // we lerp (linearly interpolate) in the return statement
+        final int position = Math.min((int) (input * (mValues.length - 1)), mValues.length - 2);
+
+        // Calculate values to account for small offsets as the lookup table has discrete values
+        final float quantized = position * mStepSize;
+        final float diff = input - quantized;
+        final float weight = diff / mStepSize;
+
+        // Linearly interpolate between the table values
+        return mValues[position] + weight * (mValues[position + 1] - mValues[position]);
+    }
+}
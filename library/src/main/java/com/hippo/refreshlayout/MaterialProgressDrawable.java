@@ -18,6 +18,7 @@ package com.hippo.refreshlayout;
 
 import android.content.Context;
 import android.content.res.Resources;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
@@ -29,15 +30,14 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
-import android.support.v4.view.animation.FastOutSlowInInterpolator;
 import android.util.DisplayMetrics;
+import android.view.Display;
 import android.view.View;
-import android.view.animation.Animation;
+import android.view.WindowManager;
 import android.view.animation.Interpolator;
-import android.view.animation.LinearInterpolator;
-import android.view.animation.Transformation;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -47,10 +47,8 @@ import java.util.ArrayList;
  * Fancy progress indicator for Material theme.
  */
 class MaterialProgressDrawable extends Drawable implements Animatable {
-    private static final Interpolator LINEAR_INTERPOLATOR = new LinearInterpolator();
-    static final Interpolator MATERIAL_INTERPOLATOR = new FastOutSlowInInterpolator();
-
-    private static final float FULL_ROTATION = 1080.0f;
+    private static final Interpolator LINEAR_INTERPOLATOR = Interpolators.LINEAR;
+    static final Interpolator MATERIAL_INTERPOLATOR = Interpolators.FAST_OUT_SLOW_IN;
 
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({LARGE, DEFAULT})
@@ -75,21 +73,14 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
         Color.BLACK
     };
 
-    /**
-     * The value in the linear interpolator for animating the drawable at which
-     * the color transition should start
-     */
-    private static final float COLOR_START_DELAY_OFFSET = 0.75f;
-    private static final float END_TRIM_START_DELAY_OFFSET = 0.5f;
-    private static final float START_TRIM_DURATION_OFFSET = 0.5f;
+    /** The interval between frames in milliseconds if the display doesn't tell. */
+    private static final float DEFAULT_FRAME_INTERVAL = 1000.0f / 60.0f;
 
     /** The duration of a single progress spin in milliseconds. */
     private static final int ANIMATION_DURATION = 1332;
 
-    /** The number of points in the progress "star". */
-    private static final float NUM_POINTS = 5f;
     /** The list of animators operating on this drawable. */
-    private final ArrayList<Animation> mAnimators = new ArrayList<Animation>();
+    private final ArrayList<FrameAnimation> mAnimators = new ArrayList<FrameAnimation>();
 
     /** The indicator ring, used to manage animation state. */
     private final Ring mRing;
@@ -105,18 +96,23 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
     /** Layout info for the arrowhead for the large spinner in dp */
     private static final int ARROW_WIDTH_LARGE = 12;
     private static final int ARROW_HEIGHT_LARGE = 6;
-    private static final float MAX_PROGRESS_ARC = .8f;
 
     private Resources mResources;
     private View mParent;
-    private Animation mAnimation;
+    private FrameEngine mEngine;
+    private FrameAnimation mAnimation;
     float mRotationCount;
     private double mWidth;
     private double mHeight;
     boolean mFinishing;
 
-    MaterialProgressDrawable(Context context, View parent) {
+    private RefreshLayout.OnMetricsListener mMetricsListener;
+    private long mLastFrameTime = -1;
+    private float mFrameInterval = DEFAULT_FRAME_INTERVAL;
+
+    MaterialProgressDrawable(Context context, View parent, FrameEngine engine) {
         mParent = parent;
+        mEngine = engine;
         mResources = context.getResources();
 
         mRing = new Ring(mCallback);
@@ -126,6 +122,15 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
         setupAnimators();
     }
 
+    /**
+     * Ring changes come in bursts of several setters per drag event or
+     * frame, they are coalesced into one invalidation per frame.
+     */
+    @Override
+    public void invalidateSelf() {
+        mEngine.getInvalidationCoalescer().invalidateDrawable(this);
+    }
+
     private void setSizeParameters(double progressCircleWidth, double progressCircleHeight,
             double centerRadius, double strokeWidth, float arrowWidth, float arrowHeight) {
         final Ring ring = mRing;
@@ -192,6 +197,19 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
         mRing.setRotation(rotation);
     }
 
+    /**
+     * Set whether the ring is rasterised into bitmaps and reused while
+     * spinning. The arc sweep and arrow scale are quantised in this mode.
+     */
+    void setBitmapCacheEnabled(boolean enabled) {
+        mRing.setBitmapCache(enabled ? new RingBitmapCache() : null);
+        invalidateSelf();
+    }
+
+    RingBitmapCache getBitmapCache() {
+        return mRing.getBitmapCache();
+    }
+
     /**
      * Update the background color of the circle image view.
      */
@@ -223,16 +241,27 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
 
     @Override
     public void draw(Canvas c) {
-        final Rect bounds = getBounds();
-        final int saveCount = c.save();
-        c.rotate(mRotation, bounds.exactCenterX(), bounds.exactCenterY());
-        mRing.draw(c, bounds);
-        c.restoreToCount(saveCount);
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("MaterialProgressDrawable#draw");
+        }
+        try {
+            final Rect bounds = getBounds();
+            final int saveCount = c.save();
+            c.rotate(mRotation, bounds.exactCenterX(), bounds.exactCenterY());
+            mRing.draw(c, bounds);
+            c.restoreToCount(saveCount);
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
+            }
+        }
     }
 
     @Override
     public void setAlpha(int alpha) {
         mRing.setAlpha(alpha);
+        invalidateSelf();
     }
 
     public int getAlpha() {
@@ -262,10 +291,10 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
 
     @Override
     public boolean isRunning() {
-        final ArrayList<Animation> animators = mAnimators;
+        final ArrayList<FrameAnimation> animators = mAnimators;
         final int N = animators.size();
         for (int i = 0; i < N; i++) {
-            final Animation animator = animators.get(i);
+            final FrameAnimation animator = animators.get(i);
             if (animator.hasStarted() && !animator.hasEnded()) {
                 return true;
             }
@@ -275,53 +304,82 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
 
     @Override
     public void start() {
+        mLastFrameTime = -1;
+        if (mMetricsListener != null) {
+            // The refresh rate might have changed since the last spin
+            mFrameInterval = frameInterval();
+        }
         mAnimation.reset();
         mRing.storeOriginals();
         // Already showing some part of the ring
         if (mRing.getEndTrim() != mRing.getStartTrim()) {
             mFinishing = true;
             mAnimation.setDuration(ANIMATION_DURATION / 2);
-            mParent.startAnimation(mAnimation);
+            mEngine.start(mAnimation, mParent);
         } else {
             mRing.setColorIndex(0);
             mRing.resetOriginals();
             mAnimation.setDuration(ANIMATION_DURATION);
-            mParent.startAnimation(mAnimation);
+            mEngine.start(mAnimation, mParent);
         }
     }
 
     @Override
     public void stop() {
-        mParent.clearAnimation();
+        mEngine.clear(mParent);
         setRotation(0);
         mRing.setShowArrow(false);
         mRing.setColorIndex(0);
         mRing.resetOriginals();
     }
 
-    float getMinProgressArc(Ring ring) {
-        return (float) Math.toRadians(
-                ring.getStrokeWidth() / (2 * Math.PI * ring.getCenterRadius()));
+    void setMetricsListener(RefreshLayout.OnMetricsListener listener) {
+        mMetricsListener = listener;
+        mLastFrameTime = -1;
+        if (listener != null) {
+            mFrameInterval = frameInterval();
+        }
     }
 
-    // Adapted from ArgbEvaluator.java
-    private int evaluateColorChange(float fraction, int startValue, int endValue) {
-        int startInt = (Integer) startValue;
-        int startA = (startInt >> 24) & 0xff;
-        int startR = (startInt >> 16) & 0xff;
-        int startG = (startInt >> 8) & 0xff;
-        int startB = startInt & 0xff;
+    /**
+     * @return The interval between frames of the display the spinner is on,
+     *         in milliseconds.
+     */
+    private float frameInterval() {
+        Display display = null;
+        if (Build.VERSION.SDK_INT >= 17) {
+            display = mParent.getDisplay();
+        }
+        if (display == null) {
+            final WindowManager windowManager = (WindowManager) mParent.getContext()
+                    .getSystemService(Context.WINDOW_SERVICE);
+            if (windowManager != null) {
+                display = windowManager.getDefaultDisplay();
+            }
+        }
+        final float refreshRate = display != null ? display.getRefreshRate() : 0.0f;
+        return refreshRate >= 1.0f ? 1000.0f / refreshRate : DEFAULT_FRAME_INTERVAL;
+    }
 
-        int endInt = (Integer) endValue;
-        int endA = (endInt >> 24) & 0xff;
-        int endR = (endInt >> 16) & 0xff;
-        int endG = (endInt >> 8) & 0xff;
-        int endB = endInt & 0xff;
+    /**
+     * Report frames missed since the last frame of the spinner animation.
+     */
+    private void trackFrame() {
+        if (mMetricsListener == null) {
+            return;
+        }
+        final long now = mEngine.getClock().currentTimeMillis();
+        if (mLastFrameTime >= 0) {
+            final int dropped = Math.round((now - mLastFrameTime) / mFrameInterval) - 1;
+            if (dropped > 0) {
+                mMetricsListener.onFramesDropped(dropped);
+            }
+        }
+        mLastFrameTime = now;
+    }
 
-        return (int) ((startA + (int) (fraction * (endA - startA))) << 24)
-                | (int) ((startR + (int) (fraction * (endR - startR))) << 16)
-                | (int) ((startG + (int) (fraction * (endG - startG))) << 8)
-                | (int) ((startB + (int) (fraction * (endB - startB))));
+    float getMinProgressArc(Ring ring) {
+        return ring.getMinProgressArc();
     }
 
     /**
@@ -330,12 +388,9 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
      * the next color.
      */
     void updateRingColor(float interpolatedTime, Ring ring) {
-        if (interpolatedTime > COLOR_START_DELAY_OFFSET) {
-            // scale the interpolatedTime so that the full
-            // transformation from 0 - 1 takes place in the
-            // remaining time
-            ring.setColor(evaluateColorChange((interpolatedTime - COLOR_START_DELAY_OFFSET)
-                    / (1.0f - COLOR_START_DELAY_OFFSET), ring.getStartingColor(),
+        final float fraction = SpinnerMath.colorFraction(interpolatedTime);
+        if (fraction >= 0) {
+            ring.setColor(SpinnerMath.evaluateColorChange(fraction, ring.getStartingColor(),
                     ring.getNextColor()));
         }
     }
@@ -345,90 +400,66 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
         // starting other circles
         // Rotation goes between [0..1].
         updateRingColor(interpolatedTime, ring);
-        float targetRotation = (float) (Math.floor(ring.getStartingRotation() / MAX_PROGRESS_ARC)
-                + 1f);
         final float minProgressArc = getMinProgressArc(ring);
-        final float startTrim = ring.getStartingStartTrim()
-                + (ring.getStartingEndTrim() - minProgressArc - ring.getStartingStartTrim())
-                * interpolatedTime;
-        ring.setStartTrim(startTrim);
+        ring.setStartTrim(SpinnerMath.finishStartTrim(ring.getStartingStartTrim(),
+                ring.getStartingEndTrim(), minProgressArc, interpolatedTime));
         ring.setEndTrim(ring.getStartingEndTrim());
-        final float rotation = ring.getStartingRotation()
-                + ((targetRotation - ring.getStartingRotation()) * interpolatedTime);
-        ring.setRotation(rotation);
+        ring.setRotation(SpinnerMath.finishRotation(ring.getStartingRotation(), interpolatedTime));
     }
 
     private void setupAnimators() {
         final Ring ring = mRing;
-        final Animation animation = new Animation() {
+        final FrameAnimation animation = new FrameAnimation() {
                 @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
+            public void applyTransformation(float interpolatedTime) {
+                trackFrame();
                 if (mFinishing) {
                     applyFinishTranslation(interpolatedTime, ring);
                 } else {
                     // The minProgressArc is calculated from 0 to create an
                     // angle that matches the stroke width.
                     final float minProgressArc = getMinProgressArc(ring);
-                    final float startingEndTrim = ring.getStartingEndTrim();
-                    final float startingTrim = ring.getStartingStartTrim();
-                    final float startingRotation = ring.getStartingRotation();
 
                     updateRingColor(interpolatedTime, ring);
 
                     // Moving the start trim only occurs in the first 50% of a
                     // single ring animation
-                    if (interpolatedTime <= START_TRIM_DURATION_OFFSET) {
-                        // scale the interpolatedTime so that the full
-                        // transformation from 0 - 1 takes place in the
-                        // remaining time
-                        final float scaledTime = (interpolatedTime)
-                                / (1.0f - START_TRIM_DURATION_OFFSET);
-                        final float startTrim = startingTrim
-                                + ((MAX_PROGRESS_ARC - minProgressArc) * MATERIAL_INTERPOLATOR
-                                        .getInterpolation(scaledTime));
-                        ring.setStartTrim(startTrim);
+                    if (interpolatedTime <= SpinnerMath.START_TRIM_DURATION_OFFSET) {
+                        final float scaledTime = SpinnerMath.startTrimTime(interpolatedTime);
+                        ring.setStartTrim(SpinnerMath.trim(ring.getStartingStartTrim(),
+                                minProgressArc, MATERIAL_INTERPOLATOR.getInterpolation(scaledTime)));
                     }
 
                     // Moving the end trim starts after 50% of a single ring
                     // animation completes
-                    if (interpolatedTime > END_TRIM_START_DELAY_OFFSET) {
-                        // scale the interpolatedTime so that the full
-                        // transformation from 0 - 1 takes place in the
-                        // remaining time
-                        final float minArc = MAX_PROGRESS_ARC - minProgressArc;
-                        float scaledTime = (interpolatedTime - START_TRIM_DURATION_OFFSET)
-                                / (1.0f - START_TRIM_DURATION_OFFSET);
-                        final float endTrim = startingEndTrim
-                                + (minArc * MATERIAL_INTERPOLATOR.getInterpolation(scaledTime));
-                        ring.setEndTrim(endTrim);
+                    if (interpolatedTime > SpinnerMath.END_TRIM_START_DELAY_OFFSET) {
+                        final float scaledTime = SpinnerMath.endTrimTime(interpolatedTime);
+                        ring.setEndTrim(SpinnerMath.trim(ring.getStartingEndTrim(),
+                                minProgressArc, MATERIAL_INTERPOLATOR.getInterpolation(scaledTime)));
                     }
 
-                    final float rotation = startingRotation + (0.25f * interpolatedTime);
-                    ring.setRotation(rotation);
-
-                    float groupRotation = ((FULL_ROTATION / NUM_POINTS) * interpolatedTime)
-                            + (FULL_ROTATION * (mRotationCount / NUM_POINTS));
-                    setRotation(groupRotation);
+                    ring.setRotation(SpinnerMath.ringRotation(ring.getStartingRotation(),
+                            interpolatedTime));
+                    setRotation(SpinnerMath.groupRotation(interpolatedTime, mRotationCount));
                 }
             }
         };
-        animation.setRepeatCount(Animation.INFINITE);
-        animation.setRepeatMode(Animation.RESTART);
+        animation.setRepeatCount(FrameAnimation.INFINITE);
         animation.setInterpolator(LINEAR_INTERPOLATOR);
-        animation.setAnimationListener(new Animation.AnimationListener() {
+        animation.setAnimationListener(new FrameAnimation.Listener() {
 
                 @Override
-            public void onAnimationStart(Animation animation) {
+            public void onAnimationStart(FrameAnimation animation) {
                 mRotationCount = 0;
             }
 
                 @Override
-            public void onAnimationEnd(Animation animation) {
+            public void onAnimationEnd(FrameAnimation animation) {
                 // do nothing
             }
 
                 @Override
-            public void onAnimationRepeat(Animation animation) {
+            public void onAnimationRepeat(FrameAnimation animation) {
                 ring.storeOriginals();
                 ring.goToNextColor();
                 ring.setStartTrim(ring.getEndTrim());
@@ -439,7 +470,7 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
                     animation.setDuration(ANIMATION_DURATION);
                     ring.setShowArrow(false);
                 } else {
-                    mRotationCount = (mRotationCount + 1) % (NUM_POINTS);
+                    mRotationCount = (mRotationCount + 1) % (SpinnerMath.NUM_POINTS);
                 }
             }
         });
@@ -466,7 +497,8 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
     private static class Ring {
         private final RectF mTempBounds = new RectF();
         private final Paint mPaint = new Paint();
-        private final Paint mArrowPaint = new Paint();
+        // Shared by all rings, the color is set before each draw
+        private final Paint mArrowPaint = SharedResources.antiAliasFillPaint();
 
         private final Callback mCallback;
 
@@ -475,6 +507,8 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
         private float mRotation = 0.0f;
         private float mStrokeWidth = 5.0f;
         private float mStrokeInset = 2.5f;
+        // The arc that matches the stroke width, updated with stroke width and center radius
+        private float mMinProgressArc;
 
         private int[] mColors;
         // mColorIndex represents the offset into the available mColors that the
@@ -491,19 +525,21 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
         private int mArrowWidth;
         private int mArrowHeight;
         private int mAlpha;
-        private final Paint mCirclePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint mCirclePaint = SharedResources.antiAliasFillPaint();
         private int mBackgroundColor;
         private int mCurrentColor;
 
+        private RingBitmapCache mBitmapCache;
+        private Canvas mBitmapCanvas;
+        private final Paint mBitmapPaint = SharedResources.bitmapPaint();
+        private final Rect mBitmapBounds = new Rect();
+
         Ring(Callback callback) {
             mCallback = callback;
 
             mPaint.setStrokeCap(Paint.Cap.SQUARE);
             mPaint.setAntiAlias(true);
             mPaint.setStyle(Style.STROKE);
-
-            mArrowPaint.setStyle(Paint.Style.FILL);
-            mArrowPaint.setAntiAlias(true);
         }
 
         public void setBackgroundColor(int color) {
@@ -519,24 +555,23 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
         public void setArrowDimensions(float width, float height) {
             mArrowWidth = (int) width;
             mArrowHeight = (int) height;
+            clearBitmapCache();
         }
 
         /**
          * Draw the progress spinner
          */
         public void draw(Canvas c, Rect bounds) {
-            final RectF arcBounds = mTempBounds;
-            arcBounds.set(bounds);
-            arcBounds.inset(mStrokeInset, mStrokeInset);
-
             final float startAngle = (mStartTrim + mRotation) * 360;
             final float endAngle = (mEndTrim + mRotation) * 360;
             float sweepAngle = endAngle - startAngle;
 
-            mPaint.setColor(mCurrentColor);
-            c.drawArc(arcBounds, startAngle, sweepAngle, false, mPaint);
-
-            drawTriangle(c, startAngle, sweepAngle, bounds);
+            if (mBitmapCache != null && Math.abs(sweepAngle) <= 360
+                    && mPaint.getColorFilter() == null && !bounds.isEmpty()) {
+                drawCached(c, startAngle, sweepAngle, bounds);
+            } else {
+                drawRing(c, startAngle, sweepAngle, bounds);
+            }
 
             if (mAlpha < 255) {
                 mCirclePaint.setColor(mBackgroundColor);
@@ -546,6 +581,87 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
             }
         }
 
+        private void drawRing(Canvas c, float startAngle, float sweepAngle, Rect bounds) {
+            final RectF arcBounds = mTempBounds;
+            arcBounds.set(bounds);
+            arcBounds.inset(mStrokeInset, mStrokeInset);
+
+            mPaint.setColor(mCurrentColor);
+            c.drawArc(arcBounds, startAngle, sweepAngle, false, mPaint);
+
+            final int saveCount = c.save();
+            drawTriangle(c, startAngle, sweepAngle, bounds);
+            c.restoreToCount(saveCount);
+        }
+
+        /**
+         * Draw the ring from an alpha mask rendered with start angle 0. Only
+         * the sweep and the arrow change the mask, the start angle is applied
+         * by rotating it and the color by drawing it with the color.
+         */
+        private void drawCached(Canvas c, float startAngle, float sweepAngle, Rect bounds) {
+            if (sweepAngle < 0 && !mShowArrow) {
+                // The same arc drawn from the other end, it shares the
+                // bitmaps of positive sweeps. The arrow marks the end.
+                startAngle += sweepAngle;
+                sweepAngle = -sweepAngle;
+            }
+
+            final RingBitmapCache cache = mBitmapCache;
+            final int sweep = Math.round(sweepAngle / 360 * RingBitmapCache.SWEEP_STEPS);
+            final int arrowScale = mShowArrow
+                    ? Math.round(mArrowScale * RingBitmapCache.ARROW_SCALE_STEPS) : -1;
+            final long key = RingBitmapCache.key(sweep, arrowScale);
+
+            cache.setSize(bounds.width(), bounds.height());
+            Bitmap bitmap = cache.get(key);
+            if (bitmap == null) {
+                bitmap = cache.obtain(key);
+                if (mBitmapCanvas == null) {
+                    mBitmapCanvas = new Canvas();
+                }
+                final Canvas canvas = mBitmapCanvas;
+                canvas.setBitmap(bitmap);
+                final Rect bitmapBounds = mBitmapBounds;
+                bitmapBounds.set(0, 0, bounds.width(), bounds.height());
+                final float arrowScaleBackup = mArrowScale;
+                final int colorBackup = mCurrentColor;
+                mArrowScale = (float) arrowScale / RingBitmapCache.ARROW_SCALE_STEPS;
+                mCurrentColor = Color.BLACK;
+                drawRing(canvas, 0, (float) sweep / RingBitmapCache.SWEEP_STEPS * 360,
+                        bitmapBounds);
+                mArrowScale = arrowScaleBackup;
+                mCurrentColor = colorBackup;
+            }
+
+            final int saveCount = c.save();
+            c.rotate(startAngle, bounds.exactCenterX(), bounds.exactCenterY());
+            mBitmapPaint.setColor(mCurrentColor);
+            c.drawBitmap(bitmap, bounds.left, bounds.top, mBitmapPaint);
+            c.restoreToCount(saveCount);
+        }
+
+        void setBitmapCache(RingBitmapCache cache) {
+            if (mBitmapCache != null) {
+                mBitmapCache.clear();
+            }
+            mBitmapCache = cache;
+        }
+
+        RingBitmapCache getBitmapCache() {
+            return mBitmapCache;
+        }
+
+        /**
+         * Drop cached bitmaps after a change of anything but the sweep,
+         * the arrow scale and the color.
+         */
+        private void clearBitmapCache() {
+            if (mBitmapCache != null) {
+                mBitmapCache.clear();
+            }
+        }
+
         private void drawTriangle(Canvas c, float startAngle, float sweepAngle, Rect bounds) {
             if (mShowArrow) {
                 if (mArrow == null) {
@@ -585,7 +701,8 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
          * @param colors Array of integers describing the colors. Must be non-<code>null</code>.
          */
         public void setColors(@NonNull int[] colors) {
-            mColors = colors;
+            // Rings with the same colors share the array
+            mColors = SharedResources.intern(colors);
             // if colors are reset, make sure to reset the color index as well
             setColorIndex(0);
         }
@@ -631,6 +748,7 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
 
         public void setColorFilter(ColorFilter filter) {
             mPaint.setColorFilter(filter);
+            clearBitmapCache();
             invalidateSelf();
         }
 
@@ -654,6 +772,8 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
         public void setStrokeWidth(float strokeWidth) {
             mStrokeWidth = strokeWidth;
             mPaint.setStrokeWidth(strokeWidth);
+            updateMinProgressArc();
+            clearBitmapCache();
             invalidateSelf();
         }
 
@@ -716,6 +836,7 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
                 insets = (float) (minEdge / 2.0f - mRingCenterRadius);
             }
             mStrokeInset = insets;
+            clearBitmapCache();
         }
 
         @SuppressWarnings("unused")
@@ -729,12 +850,22 @@ class MaterialProgressDrawable extends Drawable implements Animatable {
          */
         public void setCenterRadius(double centerRadius) {
             mRingCenterRadius = centerRadius;
+            updateMinProgressArc();
+            clearBitmapCache();
         }
 
         public double getCenterRadius() {
             return mRingCenterRadius;
         }
 
+        private void updateMinProgressArc() {
+            mMinProgressArc = SpinnerMath.minProgressArc(mStrokeWidth, mRingCenterRadius);
+        }
+
+        public float getMinProgressArc() {
+            return mMinProgressArc;
+        }
+
         /**
          * @param show Set to true to show the arrow head on the progress spinner.
          */
@@ -0,0 +1,567 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.IntDef;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.util.SparseArray;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the pages of a list one after another for the footer of a
+ * {@link RefreshLayout}, see {@link RefreshLayout#setPaginationController(PaginationController)}.
+ * <p>
+ * Footer triggers are turned into page requests. Requests beyond the
+ * pages in flight and the queue are dropped, so a burst of triggers
+ * costs one request. Pages are applied in order. Once the source calls
+ * {@link #markExhausted()}, no more pages are requested and the footer
+ * of the layout is disabled until {@link #reset()} restores the setting
+ * of the app.
+ * </p>
+ * <p>
+ * In bidirectional mode, header triggers request the page before the first
+ * applied one instead of a full reload, see {@link #setBidirectional(boolean)}.
+ * With a window size, the pages farthest from the last applied one are
+ * reported to {@link OnEvictListener} so the adapter can drop them, and
+ * they are loaded again when the list comes back to them.
+ * </p>
+ * <p>
+ * All methods must be called on the main thread.
+ * </p>
+ */
+public class PaginationController {
+
+    /** No page is loading. */
+    public static final int STATE_IDLE = 0;
+    /** Pages are loading. */
+    public static final int STATE_LOADING = 1;
+    /** A page failed, requests are dropped until {@link #retry()}. */
+    public static final int STATE_ERROR = 2;
+    /** The last page is applied, requests are dropped until {@link #reset()}. */
+    public static final int STATE_EXHAUSTED = 3;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({STATE_IDLE, STATE_LOADING, STATE_ERROR, STATE_EXHAUSTED})
+    public @interface State {}
+
+    private final PageSource mSource;
+    private final int mFirstPage;
+    // Times loads out while no layout is set
+    private final FrameEngine.Scheduler mScheduler =
+            FrameEngine.handlerScheduler(new Handler(Looper.getMainLooper()));
+
+    private RefreshLayout mLayout;
+    private Executor mExecutor;
+    private long mTimeout = RefreshPipeline.DEFAULT_TIMEOUT;
+    private OnStateChangeListener mListener;
+    private int mMaxInFlight = 1;
+    private int mQueueCapacity;
+    private boolean mBidirectional;
+    private int mMinPage = Integer.MIN_VALUE;
+    private int mWindowSize;
+    private OnEvictListener mEvictListener;
+
+    @State
+    private int mState = STATE_IDLE;
+    // Requests waiting for a free load
+    private int mQueued;
+    // The page of the next load
+    private int mNextPage;
+    // The page to apply next, loads of later pages wait for it
+    private int mNextApplyPage;
+    // Started loads by page, until they are applied
+    private final SparseArray<PageLoad> mLoads = new SparseArray<>();
+    // The first applied page, the applied pages are [mHeadPage, mNextApplyPage)
+    private int mHeadPage;
+    // The load of the page before mHeadPage
+    private PageLoad mHeadLoad;
+    private boolean mHeadExhausted;
+    // Whether the footer of the layout is disabled for the exhausted state,
+    // and whether the app had it enabled before
+    private boolean mFooterDisabled;
+    private boolean mFooterWasEnabled;
+
+    @VisibleForTesting
+    int mDroppedCount;
+
+    /**
+     * @param source the source of the pages
+     * @param firstPage the number of the first page
+     */
+    public PaginationController(@NonNull PageSource source, int firstPage) {
+        mSource = source;
+        mFirstPage = firstPage;
+        mNextPage = firstPage;
+        mNextApplyPage = firstPage;
+        mHeadPage = firstPage;
+    }
+
+    void setLayout(RefreshLayout layout) {
+        if (mLayout != null) {
+            cancel();
+            if (mFooterDisabled) {
+                mLayout.setEnableSwipeFooter(mFooterWasEnabled);
+                mFooterDisabled = false;
+            }
+        }
+        mLayout = layout;
+        syncLayout();
+    }
+
+    /**
+     * Set the executor to load pages on. A shared thread pool is used by default.
+     */
+    public void setExecutor(@Nullable Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Set the timeout of each page load. A timed out load is interrupted
+     * and reported to {@link PageSource#onPageFailed(int, Exception)} with
+     * a {@link java.util.concurrent.TimeoutException}. It is 30 seconds by default.
+     *
+     * @param timeout the timeout in milliseconds, 0 for none
+     */
+    public void setTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalStateException("timeout < 0");
+        }
+        mTimeout = timeout;
+    }
+
+    /**
+     * Set how many pages may load at the same time. Later pages are
+     * applied after earlier ones. It is 1 by default.
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalStateException("maxInFlight < 1");
+        }
+        mMaxInFlight = maxInFlight;
+        startQueued();
+    }
+
+    /**
+     * Set how many requests may wait while the maximum of pages is loading.
+     * Further requests are dropped. It is 0 by default, a request while
+     * pages are loading is dropped.
+     */
+    public void setQueueCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalStateException("capacity < 0");
+        }
+        mQueueCapacity = capacity;
+        mQueued = Math.min(mQueued, capacity);
+    }
+
+    /**
+     * Set whether header triggers of the layout load the page before the
+     * first applied one instead of reloading. It is {@code false} by default.
+     */
+    public void setBidirectional(boolean bidirectional) {
+        mBidirectional = bidirectional;
+        if (!bidirectional) {
+            cancelHeadLoad();
+        }
+    }
+
+    public boolean isBidirectional() {
+        return mBidirectional;
+    }
+
+    /**
+     * Set the number of the first page that exists, no page before it is
+     * requested. There is no limit by default.
+     */
+    public void setMinPage(int minPage) {
+        mMinPage = minPage;
+    }
+
+    /**
+     * Set how many applied pages to keep. Once more are applied, the pages
+     * at the other end are evicted, see {@link OnEvictListener}. It is 0
+     * by default, no page is evicted.
+     */
+    public void setWindowSize(int pages) {
+        if (pages < 0) {
+            throw new IllegalStateException("pages < 0");
+        }
+        mWindowSize = pages;
+    }
+
+    public void setOnEvictListener(@Nullable OnEvictListener listener) {
+        mEvictListener = listener;
+    }
+
+    public void setOnStateChangeListener(@Nullable OnStateChangeListener listener) {
+        mListener = listener;
+    }
+
+    @State
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * @return The number of the next page to apply.
+     */
+    public int getNextPage() {
+        return mNextApplyPage;
+    }
+
+    /**
+     * @return The number of the first applied page.
+     */
+    public int getFirstPage() {
+        return mHeadPage;
+    }
+
+    /**
+     * @return {@code true} if the controller is bidirectional and there
+     *         might be a page before the first applied one.
+     */
+    public boolean hasPreviousPage() {
+        return mBidirectional && !mHeadExhausted && mHeadPage > mMinPage;
+    }
+
+    /**
+     * Request the page before the first applied one, showing the header
+     * of the layout while it loads. It is dropped if there is no such
+     * page or if it is already loading. A failed load is reported to
+     * {@link PageSource#onPageFailed(int, Exception)} and can be requested again.
+     */
+    public void requestPreviousPage() {
+        if (!mBidirectional) {
+            throw new IllegalStateException("Not bidirectional");
+        }
+        if (mHeadLoad != null || !hasPreviousPage()) {
+            mDroppedCount++;
+            return;
+        }
+        mHeadLoad = new PageLoad(mHeadPage - 1);
+        if (mLayout != null) {
+            mLayout.setHeaderRefreshing(true);
+        }
+        startLoad(mHeadLoad);
+    }
+
+    /**
+     * Request the next page. It is dropped if the controller is in error
+     * or exhausted, or if the loads and the queue are full.
+     */
+    public void requestNextPage() {
+        if (mState == STATE_ERROR || mState == STATE_EXHAUSTED) {
+            mDroppedCount++;
+        } else if (mLoads.size() < mMaxInFlight) {
+            startLoad();
+        } else if (mQueued < mQueueCapacity) {
+            mQueued++;
+        } else {
+            mDroppedCount++;
+        }
+        syncLayout();
+    }
+
+    /**
+     * Load the failed page again.
+     */
+    public void retry() {
+        if (mState != STATE_ERROR) {
+            return;
+        }
+        setState(STATE_IDLE);
+        requestNextPage();
+    }
+
+    /**
+     * Mark the last applied page as the last one. Call it from the
+     * result of {@link PageSource#loadPage(int)}.
+     */
+    public void markExhausted() {
+        cancelLoads();
+        setState(STATE_EXHAUSTED);
+        syncLayout();
+    }
+
+    /**
+     * Mark the first applied page as the first one. Call it from the
+     * result of {@link PageSource#loadPage(int)}.
+     */
+    public void markHeadExhausted() {
+        cancelHeadLoad();
+        mHeadExhausted = true;
+    }
+
+    /**
+     * Cancel all loads and start over from the first page.
+     */
+    public void reset() {
+        cancelLoads();
+        cancelHeadLoad();
+        mHeadExhausted = false;
+        mHeadPage = mFirstPage;
+        mNextPage = mFirstPage;
+        mNextApplyPage = mFirstPage;
+        setState(STATE_IDLE);
+        syncLayout();
+    }
+
+    /**
+     * Cancel the loads of pages that are not applied yet, they are loaded
+     * again by the next requests.
+     */
+    void cancel() {
+        cancelLoads();
+        cancelHeadLoad();
+        if (mState == STATE_LOADING) {
+            setState(STATE_IDLE);
+        }
+        syncLayout();
+    }
+
+    private void cancelLoads() {
+        for (int i = 0, n = mLoads.size(); i < n; i++) {
+            mLoads.valueAt(i).cancel();
+        }
+        mLoads.clear();
+        mQueued = 0;
+        mNextPage = mNextApplyPage;
+    }
+
+    private void cancelHeadLoad() {
+        if (mHeadLoad != null) {
+            mHeadLoad.cancel();
+            mHeadLoad = null;
+            if (mLayout != null) {
+                mLayout.setHeaderRefreshing(false);
+            }
+        }
+    }
+
+    private void startLoad() {
+        final PageLoad load = new PageLoad(mNextPage++);
+        mLoads.put(load.mPage, load);
+        setState(STATE_LOADING);
+        startLoad(load);
+    }
+
+    private void startLoad(PageLoad load) {
+        // Time out on the clock of the layout if there is one
+        load.start(mExecutor != null ? mExecutor : RefreshPipeline.getDefaultExecutor(),
+                mLayout != null ? mLayout.getFrameEngine().getScheduler() : mScheduler, mTimeout);
+    }
+
+    private void startQueued() {
+        while (mQueued > 0 && mLoads.size() < mMaxInFlight
+                && mState != STATE_ERROR && mState != STATE_EXHAUSTED) {
+            mQueued--;
+            startLoad();
+        }
+    }
+
+    private void onLoadDone(PageLoad load) {
+        if (load == mHeadLoad) {
+            onHeadLoadDone(load);
+            return;
+        }
+        // Cancelled, or replaced after a reset
+        if (mLoads.get(load.mPage) != load) {
+            return;
+        }
+        load.mDone = true;
+
+        // Apply the finished pages in order
+        PageLoad next;
+        while (mState == STATE_LOADING && (next = mLoads.get(mNextApplyPage)) != null
+                && next.mDone) {
+            mLoads.remove(mNextApplyPage);
+            if (next.mError != null) {
+                cancelLoads();
+                setState(STATE_ERROR);
+                mSource.onPageFailed(next.mPage, next.mError);
+                break;
+            }
+            mNextApplyPage++;
+            if (next.mResult != null) {
+                // Might mark the controller exhausted
+                next.mResult.run();
+            }
+            evictHead();
+        }
+
+        startQueued();
+        if (mState == STATE_LOADING && mLoads.size() == 0) {
+            setState(STATE_IDLE);
+        }
+        syncLayout();
+    }
+
+    private void onHeadLoadDone(PageLoad load) {
+        mHeadLoad = null;
+        if (load.mError != null) {
+            mSource.onPageFailed(load.mPage, load.mError);
+        } else {
+            mHeadPage = load.mPage;
+            if (load.mResult != null) {
+                // Might mark the head exhausted
+                load.mResult.run();
+            }
+            evictTail();
+        }
+        if (mLayout != null) {
+            mLayout.setHeaderRefreshing(false);
+        }
+        syncLayout();
+    }
+
+    // Drop the first pages once the window is exceeded at the tail
+    private void evictHead() {
+        final int last = mNextApplyPage - mWindowSize - 1;
+        if (mWindowSize == 0 || last < mHeadPage) {
+            return;
+        }
+        final int first = mHeadPage;
+        // A load of the page before is out of the window too
+        cancelHeadLoad();
+        mHeadPage = last + 1;
+        mHeadExhausted = false;
+        if (mEvictListener != null) {
+            mEvictListener.onPagesEvicted(first, last);
+        }
+    }
+
+    // Drop the last pages once the window is exceeded at the head
+    private void evictTail() {
+        final int first = mHeadPage + mWindowSize;
+        if (mWindowSize == 0 || first >= mNextApplyPage) {
+            return;
+        }
+        final int last = mNextApplyPage - 1;
+        cancelLoads();
+        mNextPage = first;
+        mNextApplyPage = first;
+        // The evicted pages exist, the tail can load again
+        setState(STATE_IDLE);
+        if (mEvictListener != null) {
+            mEvictListener.onPagesEvicted(first, last);
+        }
+    }
+
+    private void setState(@State int state) {
+        if (mState != state) {
+            mState = state;
+            if (mListener != null) {
+                mListener.onStateChanged(state);
+            }
+        }
+    }
+
+    private void syncLayout() {
+        if (mLayout != null) {
+            // Only touch the footer on entering and leaving the exhausted
+            // state, the app might have disabled it
+            final boolean exhausted = mState == STATE_EXHAUSTED;
+            if (exhausted != mFooterDisabled) {
+                if (exhausted) {
+                    mFooterWasEnabled = mLayout.isEnableSwipeFooter();
+                    mLayout.setEnableSwipeFooter(false);
+                } else {
+                    mLayout.setEnableSwipeFooter(mFooterWasEnabled);
+                }
+                mFooterDisabled = exhausted;
+            }
+            mLayout.setFooterRefreshing(mState == STATE_LOADING);
+        }
+    }
+
+    private final class PageLoad extends BackgroundLoad {
+        final int mPage;
+        // Set on the main thread
+        boolean mDone;
+        Runnable mResult;
+        Exception mError;
+
+        PageLoad(int page) {
+            mPage = page;
+        }
+
+        @Override
+        public Runnable call() throws Exception {
+            return mSource.loadPage(mPage);
+        }
+
+        @Override
+        protected void onFinished(Runnable result, Exception error) {
+            mResult = result;
+            mError = error;
+            onLoadDone(this);
+        }
+    }
+
+    /**
+     * Loads the pages of a {@link PaginationController}.
+     */
+    public interface PageSource {
+        /**
+         * Load a page on a background thread. The thread is interrupted if
+         * the load is cancelled.
+         *
+         * @param page the number of the page
+         * @return A runnable to apply the page on the main thread, or {@code null}
+         */
+        @Nullable
+        Runnable loadPage(int page) throws Exception;
+
+        /**
+         * Called on the main thread if a load throws or times out. Later
+         * pages are dropped until {@link PaginationController#retry()}.
+         *
+         * @param page the number of the page
+         * @param e the exception
+         */
+        void onPageFailed(int page, Exception e);
+    }
+
+    /**
+     * Notified when pages of a {@link PaginationController} leave its window.
+     */
+    public interface OnEvictListener {
+        /**
+         * Called on the main thread right after the page that exceeded the
+         * window is applied. The pages should be removed from the adapter,
+         * they are requested again when the list scrolls back to them.
+         *
+         * @param firstPage the first evicted page
+         * @param lastPage the last evicted page, inclusive
+         */
+        void onPagesEvicted(int firstPage, int lastPage);
+    }
+
+    /**
+     * Notified when the state of a {@link PaginationController} changes.
+     */
+    public interface OnStateChangeListener {
+        void onStateChanged(@State int state);
+    }
+}
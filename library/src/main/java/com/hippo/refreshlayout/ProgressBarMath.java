@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+/**
+ * Per-frame arithmetic of {@link SwipeProgressBar}, kept free of Android
+ * classes so it can be run on a plain JVM.
+ */
+final class ProgressBarMath {
+    private ProgressBarMath() {}
+
+    /**
+     * @return How far the cycle is, in [0..colors).
+     */
+    static float rawProgress(long elapsed, int animationDuration, int colors) {
+        return elapsed / (animationDuration / (float) colors);
+    }
+
+    /**
+     * @return The index of the color to fill the whole bar with, it is the
+     *         last color that would have finished drawing.
+     */
+    static int fillColorIndex(long iterations, float rawProgress, int colors) {
+        if (iterations == 0) {
+            return 0;
+        }
+        final int i = rawProgress >= 0 ? Math.min((int) rawProgress, colors - 1) : colors - 1;
+        return (colors - 1 + i) % colors;
+    }
+
+    /**
+     * Within phase {@code p}, only circles {@code p} and {@code p + 1} are
+     * drawn, plus circle {@code p - 1} fully grown if {@code rawProgress}
+     * is exactly {@code p}.
+     *
+     * @return The phase of the cycle, in [0..colors), or a negative value
+     *         if no circle should be drawn.
+     */
+    static int phase(float rawProgress, int colors) {
+        return rawProgress >= 0 ? Math.min((int) rawProgress, colors - 1) : -1;
+    }
+
+    /**
+     * The bar draws up to {@code colors + 1} overlapping concentric circles,
+     * circle {@code ring} uses color {@code ring % colors}. Circles to draw
+     * are picked by {@link #phase(float, int)}.
+     *
+     * @return The percentage of the view that the circle should cover.
+     */
+    static float ringPercent(float rawProgress, int ring) {
+        return (rawProgress - ring + 1.0f) / 2;
+    }
+
+    /**
+     * @return The progress of the finish animation, in [0..1).
+     */
+    static float finishPercent(long finishElapsed, int finishDuration) {
+        return (finishElapsed % finishDuration) / (float) finishDuration;
+    }
+}
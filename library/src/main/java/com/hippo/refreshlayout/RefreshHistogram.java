@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram with fixed buckets. Recording is lock-free and does not
+ * allocate, it can be called from any thread.
+ * <p>
+ * Bucket {@code i} counts values in ({@code bound(i - 1)}..{@code bound(i)}],
+ * the last bucket counts all values above the last bound.
+ * </p>
+ */
+public final class RefreshHistogram {
+
+    /** Bucket bounds for durations in milliseconds. */
+    public static final long[] MILLIS_BOUNDS = {
+            1, 2, 4, 8, 16, 24, 32, 50, 75, 100, 150, 200, 300, 500, 750,
+            1000, 1500, 2000, 3000, 5000, 10000, 30000
+    };
+
+    /** Bucket bounds for durations in microseconds. */
+    public static final long[] MICROS_BOUNDS = {
+            50, 100, 200, 300, 500, 750, 1000, 1500, 2000, 4000, 8000, 16000, 32000
+    };
+
+    /** Bucket bounds for small counts. */
+    public static final long[] COUNT_BOUNDS = {
+            1, 2, 3, 4, 6, 8, 12, 16, 32, 64
+    };
+
+    private final long[] mBounds;
+    private final AtomicLongArray mCounts;
+
+    /**
+     * @param bounds The inclusive upper bounds of the buckets, ascending
+     */
+    public RefreshHistogram(long... bounds) {
+        if (bounds == null || bounds.length == 0) {
+            throw new IllegalStateException("bounds == null || bounds.length == 0");
+        }
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalStateException("bounds must be ascending");
+            }
+        }
+        mBounds = bounds.clone();
+        mCounts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    /**
+     * Add a sample.
+     */
+    public void record(long value) {
+        final long[] bounds = mBounds;
+        int low = 0;
+        int high = bounds.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (bounds[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        mCounts.incrementAndGet(low);
+    }
+
+    /**
+     * @return The number of buckets, including the overflow bucket.
+     */
+    public int getBucketCount() {
+        return mCounts.length();
+    }
+
+    /**
+     * @return The inclusive upper bound of the bucket,
+     *         {@link Long#MAX_VALUE} for the overflow bucket.
+     */
+    public long getBucketBound(int index) {
+        return index < mBounds.length ? mBounds[index] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return The number of samples in the bucket.
+     */
+    public long getBucketSamples(int index) {
+        return mCounts.get(index);
+    }
+
+    /**
+     * @return The number of samples in all buckets.
+     */
+    public long getSampleCount() {
+        long count = 0;
+        for (int i = 0, n = mCounts.length(); i < n; i++) {
+            count += mCounts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Get the upper bound of the bucket that holds the percentile. Buckets
+     * are read one by one, samples recorded meanwhile might be partly included.
+     *
+     * @param percentile The percentile in [0..100]
+     * @return The bucket bound, or 0 if there is no sample.
+     */
+    public long getPercentile(float percentile) {
+        final long total = getSampleCount();
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(total * MathUtils.clamp(percentile, 0.0f, 100.0f) / 100);
+        long count = 0;
+        for (int i = 0, n = mCounts.length(); i < n; i++) {
+            count += mCounts.get(i);
+            if (count >= rank && count > 0) {
+                return getBucketBound(i);
+            }
+        }
+        return getBucketBound(mCounts.length() - 1);
+    }
+
+    /**
+     * Remove all samples.
+     */
+    public void reset() {
+        for (int i = 0, n = mCounts.length(); i < n; i++) {
+            mCounts.set(i, 0);
+        }
+    }
+}
@@ -22,6 +22,7 @@ import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.support.annotation.ColorInt;
 import android.support.annotation.ColorRes;
+import android.support.annotation.IntDef;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
@@ -39,13 +40,14 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.animation.AccelerateInterpolator;
-import android.view.animation.Animation;
-import android.view.animation.Animation.AnimationListener;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Transformation;
+import android.view.VelocityTracker;
+import android.view.ViewTreeObserver;
 import android.widget.AbsListView;
 
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.Executor;
+
 /**
  * The SwipeRefreshLayout should be used whenever the user can refresh the
  * contents of a view via a vertical swipe gesture. The activity that
@@ -73,6 +75,22 @@ public class RefreshLayout extends ViewGroup {
     // Maps to ProgressBar default style
     public static final int DEFAULT = MaterialProgressDrawable.DEFAULT;
 
+    /** Never load the footer before the user reaches the bottom. */
+    public static final int PREFETCH_NONE = BoundaryPrefetcher.NONE;
+    /**
+     * Load the footer when the given number of items is left below the screen.
+     * Items are the children of list targets, for a ScrollView the lead is in pixels.
+     */
+    public static final int PREFETCH_ITEMS = BoundaryPrefetcher.ITEMS;
+    /** Load the footer when the given number of pixels is left to scroll. */
+    public static final int PREFETCH_PIXELS = BoundaryPrefetcher.PIXELS;
+    /** Load the footer when the bottom is expected within the given milliseconds. */
+    public static final int PREFETCH_MILLIS = BoundaryPrefetcher.MILLIS;
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({PREFETCH_NONE, PREFETCH_ITEMS, PREFETCH_PIXELS, PREFETCH_MILLIS})
+    public @interface PrefetchUnit {}
+
     @VisibleForTesting
     static final int CIRCLE_DIAMETER = 40;
     @VisibleForTesting
@@ -83,7 +101,6 @@ public class RefreshLayout extends ViewGroup {
     private static final int MAX_ALPHA = 255;
     private static final int STARTING_PROGRESS_ALPHA = (int) (.3f * MAX_ALPHA);
 
-    private static final float DECELERATE_INTERPOLATION_FACTOR = 2f;
     private static final int INVALID_POINTER = -1;
     private static final float DRAG_RATE = .5f;
 
@@ -106,6 +123,21 @@ public class RefreshLayout extends ViewGroup {
 
     private View mTarget; // the target of the gesture
     OnRefreshListener mListener;
+    private final RefreshPipeline mRefreshPipeline;
+    private PaginationController mPaginationController;
+
+    private OnMetricsListener mMetricsListener;
+    // Times in the clock of mEngine, -1 if not measured
+    private long mHeaderTriggerTime = -1;
+    private long mHeaderCallbackTime = -1;
+    private long mFooterTriggerTime = -1;
+    private long mFooterCallbackTime = -1;
+
+    private static final String HEADER_REFRESH_SECTION = "RefreshLayout header refresh";
+    private static final String FOOTER_REFRESH_SECTION = "RefreshLayout footer refresh";
+    // Whether an async trace section spans the refresh
+    private boolean mHeaderRefreshTraced;
+    private boolean mFooterRefreshTraced;
     boolean mHeaderRefreshing = false;
     private int mTouchSlop;
     private float mHeaderTotalDragDistance = -1;
@@ -133,11 +165,12 @@ public class RefreshLayout extends ViewGroup {
     // Target is returning to its start offset because it was cancelled or a
     // refresh was triggered.
     private boolean mReturningToStart;
-    private final DecelerateInterpolator mDecelerateInterpolator;
     private static final int[] LAYOUT_ATTRS = new int[] {
         android.R.attr.enabled
     };
 
+    // The header views are created on the first header refresh or drag,
+    // see ensureHeader()
     CircleImageView mCircleView;
     private int mCircleViewIndex = -1;
 
@@ -151,15 +184,40 @@ public class RefreshLayout extends ViewGroup {
 
     MaterialProgressDrawable mProgress;
 
-    private Animation mHeaderScaleAnimation;
+    // Applied to the header views when they are created
+    private int[] mHeaderColors;
+    private int mHeaderBackgroundColor = CIRCLE_BG_LIGHT;
+    private int mHeaderCircleSize = MaterialProgressDrawable.DEFAULT;
+    private boolean mHeaderBitmapCacheEnabled;
+
+    private final FrameEngine mEngine;
+
+    private final FrameAnimation mHeaderScaleAnimation = new FrameAnimation() {
+        @Override
+        public void applyTransformation(float interpolatedTime) {
+            setAnimationProgress(interpolatedTime);
+        }
+    };
 
-    private Animation mHeaderScaleDownAnimation;
+    private final FrameAnimation mHeaderScaleDownAnimation = new FrameAnimation() {
+        @Override
+        public void applyTransformation(float interpolatedTime) {
+            setAnimationProgress(1 - interpolatedTime);
+        }
+    };
 
-    private Animation mHeaderAlphaStartAnimation;
+    private final ProgressAlphaAnimation mHeaderAlphaStartAnimation = new ProgressAlphaAnimation();
 
-    private Animation mHeaderAlphaMaxAnimation;
+    private final ProgressAlphaAnimation mHeaderAlphaMaxAnimation = new ProgressAlphaAnimation();
 
-    private Animation mHeaderScaleDownToStartAnimation;
+    private final FrameAnimation mHeaderScaleDownToStartAnimation = new FrameAnimation() {
+        @Override
+        public void applyTransformation(float interpolatedTime) {
+            float targetScale = (mHeaderStartingScale + (-mHeaderStartingScale * interpolatedTime));
+            setAnimationProgress(targetScale);
+            moveToStart(interpolatedTime);
+        }
+    };
 
     boolean mHeaderNotify;
 
@@ -170,26 +228,24 @@ public class RefreshLayout extends ViewGroup {
 
     private OnChildScrollCallback mChildScrollCallback;
 
-    private Animation.AnimationListener mHeaderRefreshListener = new Animation.AnimationListener() {
+    private FrameAnimation.Listener mHeaderRefreshListener = new FrameAnimation.Listener() {
         @Override
-        public void onAnimationStart(Animation animation) {
+        public void onAnimationStart(FrameAnimation animation) {
         }
 
         @Override
-        public void onAnimationRepeat(Animation animation) {
+        public void onAnimationRepeat(FrameAnimation animation) {
         }
 
         @SuppressLint("NewApi")
         @Override
-        public void onAnimationEnd(Animation animation) {
+        public void onAnimationEnd(FrameAnimation animation) {
             if (mHeaderRefreshing) {
                 // Make sure the progress view is fully visible
                 mProgress.setAlpha(MAX_ALPHA);
                 mProgress.start();
                 if (mHeaderNotify) {
-                    if (mListener != null) {
-                        mListener.onHeaderRefresh();
-                    }
+                    notifyHeaderRefresh();
                 }
                 mHeaderCurrentTargetOffsetTop = mCircleView.getTop();
             } else {
@@ -199,12 +255,13 @@ public class RefreshLayout extends ViewGroup {
     };
 
     private static final long RETURN_TO_ORIGINAL_POSITION_TIMEOUT = 300;
-    private static final float ACCELERATE_INTERPOLATION_FACTOR = 1.5f;
     private static final float PROGRESS_BAR_HEIGHT = 4;
     private static final float MAX_SWIPE_DISTANCE_FACTOR = .6f;
     private static final int REFRESH_TRIGGER_DISTANCE = 120;
 
-    private SwipeProgressBar mProgressBar; //the thing that shows progress is going
+    SwipeProgressBar mProgressBar; //the thing that shows progress is going, see ensureProgressBar()
+    // Applied to the progress bar when it is created
+    private int[] mFooterColors;
     private boolean mIsFooterBeingDragged;
     private int mFooterOriginalOffsetTop;
     private int mFooterFrom;
@@ -214,11 +271,10 @@ public class RefreshLayout extends ViewGroup {
     private float mFooterCurrPercentage = 0;
     private int mProgressBarHeight;
     private int mFooterCurrentTargetOffsetTop;
-    private final AccelerateInterpolator mAccelerateInterpolator;
 
-    private final Animation mAnimateFooterToStartPosition = new Animation() {
+    private final FrameAnimation mAnimateFooterToStartPosition = new FrameAnimation() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
+        public void applyTransformation(float interpolatedTime) {
             int targetTop = 0;
             if (mFooterFrom != mFooterOriginalOffsetTop) {
                 targetTop = (mFooterFrom + (int)((mFooterOriginalOffsetTop - mFooterFrom) * interpolatedTime));
@@ -232,26 +288,35 @@ public class RefreshLayout extends ViewGroup {
         }
     };
 
-    private Animation mShrinkTrigger = new Animation() {
+    private FrameAnimation mShrinkTrigger = new FrameAnimation() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
+        public void applyTransformation(float interpolatedTime) {
             float percent = mFooterFromPercentage + ((0 - mFooterFromPercentage) * interpolatedTime);
             mProgressBar.setTriggerPercentage(percent);
         }
     };
 
-    private final AnimationListener mReturnToStartPositionListener = new BaseAnimationListener() {
+    private final FrameAnimation.Listener mReturnToStartPositionListener = new BaseAnimationListener() {
         @Override
-        public void onAnimationEnd(Animation animation) {
+        public void onAnimationEnd(FrameAnimation animation) {
             // Once the target content has returned to its start position, reset
             // the target offset to 0
             mFooterCurrentTargetOffsetTop = 0;
         }
     };
 
-    private final AnimationListener mShrinkAnimationListener = new BaseAnimationListener() {
+    private final FrameAnimation.Listener mScaleDownOnEndListener = new BaseAnimationListener() {
+        @Override
+        public void onAnimationEnd(FrameAnimation animation) {
+            if (!mHeaderScale) {
+                startScaleDownAnimation(null);
+            }
+        }
+    };
+
+    private final FrameAnimation.Listener mShrinkAnimationListener = new BaseAnimationListener() {
         @Override
-        public void onAnimationEnd(Animation animation) {
+        public void onAnimationEnd(FrameAnimation animation) {
             mFooterCurrPercentage = 0;
         }
     };
@@ -277,8 +342,8 @@ public class RefreshLayout extends ViewGroup {
                 mShrinkTrigger.setDuration(mMediumAnimationDuration);
                 mShrinkTrigger.setAnimationListener(mShrinkAnimationListener);
                 mShrinkTrigger.reset();
-                mShrinkTrigger.setInterpolator(mDecelerateInterpolator);
-                startAnimation(mShrinkTrigger);
+                mShrinkTrigger.setInterpolator(Interpolators.DECELERATE);
+                mEngine.start(mShrinkTrigger, RefreshLayout.this);
             }
             animateFooterOffsetToStartPosition(mFooterCurrentTargetOffsetTop + getPaddingTop(),
                     mReturnToStartPositionListener);
@@ -288,10 +353,119 @@ public class RefreshLayout extends ViewGroup {
     private boolean mEnableSwipeHeader = true;
     private boolean mEnableSwipeFooter = true;
 
+    private final BoundaryPrefetcher mBoundaryPrefetcher;
+    // Loads previous pages of a bidirectional PaginationController
+    private final BoundaryPrefetcher mHeaderPrefetcher;
+
+    // Whether the target can scroll up or down, valid until it scrolls or is laid out
+    private final ScrollBoundaryCache mBoundaryCache = new ScrollBoundaryCache();
+
+    private final ViewTreeObserver.OnGlobalLayoutListener mOnGlobalLayoutListener =
+            new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            mBoundaryCache.invalidate();
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            mBoundaryCache.invalidate();
+            if (mBoundaryPrefetcher.isEnabled()) {
+                prefetchFooter();
+            }
+            if (mHeaderPrefetcher.isEnabled()) {
+                prefetchHeader();
+            }
+        }
+    };
+
+    // The number of layout and invalidation requests issued on this view,
+    // lets a headless harness check the per-event cost of a gesture
+    @VisibleForTesting
+    int mRequestLayoutCount;
+    @VisibleForTesting
+    int mInvalidateCount;
+    @VisibleForTesting
+    int mLayoutCount;
+
+    // Whether the circle view is brought to front each time it moves
+    private boolean mHeaderBringToFront = true;
+
+    // Drag moves are applied once per frame from the animation callback, which
+    // runs after input in the same frame. Before API 16 it is only a delay.
+    private boolean mDragBatching = android.os.Build.VERSION.SDK_INT >= 16;
+    private final DragBatcher mDragBatcher = new DragBatcher();
+    private boolean mDragUpdateScheduled;
+
+    // The header load starts when the drag crosses the trigger distance
+    private boolean mHeaderPrewarm;
+    private OnHeaderPrewarmListener mHeaderPrewarmListener;
+    // A pre-warm was issued in this gesture and is not committed or aborted yet
+    private boolean mHeaderPrewarming;
+
+    // The header settles like a spring after release
+    private boolean mSpringRelease;
+    private VelocityTracker mVelocityTracker;
+    // Spinner velocity at release in pixels per millisecond, taken by the next spring
+    private float mHeaderReleaseVelocity;
+    // The overscroll to continue dragging from after a touch caught the spring, or -1
+    private float mHeaderCaughtOverscroll = -1;
+
+    private final SpringAnimation mHeaderSpring = new SpringAnimation() {
+        @Override
+        protected void applyPosition(float position, float fraction) {
+            setHeaderTargetOffsetTopAndBottom(Math.round(position) - mHeaderCurrentTargetOffsetTop,
+                    false /* requires update */);
+            if (mHeaderRefreshing) {
+                mProgress.setArrowScale(1 - fraction);
+            }
+        }
+    };
+
+    private final Runnable mDragUpdate = new Runnable() {
+        @Override
+        public void run() {
+            mDragUpdateScheduled = false;
+            if (mHeaderRefreshing || mFooterRefreshing || !mDragBatcher.hasSample()) {
+                return;
+            }
+            final float y = mDragBatcher.getY(mEngine.getClock().currentTimeMillis());
+            // Already in a frame callback, a flush posted from here would
+            // draw the spinner a frame behind its offset
+            final InvalidationCoalescer coalescer = mEngine.getInvalidationCoalescer();
+            coalescer.beginFrame();
+            try {
+                if (mIsHeaderBeingDragged) {
+                    final float overscrollTop = (y - mInitialMotionY) * DRAG_RATE;
+                    if (overscrollTop > 0) {
+                        moveSpinner(overscrollTop);
+                    }
+                } else if (mIsFooterBeingDragged) {
+                    setTriggerPercentage(getFooterTriggerPercentage(y));
+                }
+            } finally {
+                coalescer.endFrame();
+            }
+        }
+    };
+
     void resetHeader() {
-        mCircleView.clearAnimation();
+        mHeaderCaughtOverscroll = -1;
+        if (mCircleView == null) {
+            // Nothing is shown, only move the start position
+            if (!mHeaderScale) {
+                mHeaderCurrentTargetOffsetTop = mHeaderOriginalOffsetTop;
+            }
+            return;
+        }
+        mEngine.clear(mCircleView);
         mProgress.stop();
-        mCircleView.setVisibility(View.GONE);
+        // The circle is laid out even if hidden, unlike GONE, showing it
+        // again doesn't request a layout pass
+        mCircleView.setVisibility(View.INVISIBLE);
         setHeaderColorViewAlpha(MAX_ALPHA);
         // Return the circle to its start position
         if (mHeaderScale) {
@@ -304,8 +478,9 @@ public class RefreshLayout extends ViewGroup {
     }
 
     void resetFooter() {
-        removeCallbacks(mCancel);
-        removeCallbacks(mReturnToStartPosition);
+        final FrameEngine.Scheduler scheduler = mEngine.getScheduler();
+        scheduler.removeCallbacks(mCancel);
+        scheduler.removeCallbacks(mReturnToStartPosition);
     }
 
     @Override
@@ -318,8 +493,40 @@ public class RefreshLayout extends ViewGroup {
     }
 
     @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(mOnScrollChangedListener);
+        getViewTreeObserver().addOnGlobalLayoutListener(mOnGlobalLayoutListener);
+        mBoundaryCache.invalidate();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnScrollChangedListener(mOnScrollChangedListener);
+        // removeOnGlobalLayoutListener() requires API 16
+        getViewTreeObserver().removeGlobalOnLayoutListener(mOnGlobalLayoutListener);
+        mBoundaryPrefetcher.reset();
+        mHeaderPrefetcher.reset();
+        abortHeaderPrewarm();
+        cancelDragUpdate();
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+        // Loads can't finish without a window, drop them with their refreshing state
+        if (mRefreshPipeline.isLoading(true)) {
+            mHeaderRefreshing = false;
+            markRefreshCompleted(true);
+        }
+        if (mRefreshPipeline.isLoading(false)) {
+            setFooterRefreshing(false);
+        }
+        mRefreshPipeline.cancelAll();
+        if (mPaginationController != null) {
+            mPaginationController.cancel();
+        }
         resetHeader();
         resetFooter();
     }
@@ -390,7 +597,9 @@ public class RefreshLayout extends ViewGroup {
     public void setHeaderProgressViewEndTarget(boolean scale, int end) {
         mHeaderSpinnerOffsetEnd = end;
         mHeaderScale = scale;
-        mCircleView.invalidate();
+        if (mCircleView != null) {
+            mCircleView.invalidate();
+        }
     }
 
     /**
@@ -406,6 +615,10 @@ public class RefreshLayout extends ViewGroup {
         } else {
             mCircleDiameter = (int) (CIRCLE_DIAMETER * metrics.density);
         }
+        mHeaderCircleSize = size;
+        if (mCircleView == null) {
+            return;
+        }
         // force the bounds of the progress circle inside the circle view to
         // update by setting it to null before updating its size and then
         // re-setting it
@@ -438,13 +651,14 @@ public class RefreshLayout extends ViewGroup {
                 android.R.integer.config_mediumAnimTime);
 
         setWillNotDraw(false);
-        mDecelerateInterpolator = new DecelerateInterpolator(DECELERATE_INTERPOLATION_FACTOR);
-        mAccelerateInterpolator = new AccelerateInterpolator(ACCELERATE_INTERPOLATION_FACTOR);
+        mEngine = new FrameEngine(this);
+        mBoundaryPrefetcher = new BoundaryPrefetcher(mEngine, false);
+        mHeaderPrefetcher = new BoundaryPrefetcher(mEngine, true);
+        mRefreshPipeline = new RefreshPipeline(this, mEngine);
 
         final DisplayMetrics metrics = getResources().getDisplayMetrics();
         mCircleDiameter = (int) (CIRCLE_DIAMETER * metrics.density);
 
-        createProgressView();
         ViewCompat.setChildrenDrawingOrderEnabled(this, true);
         // the absolute offset has to take into account that the circle starts at an offset
         mHeaderSpinnerOffsetEnd = (int) (DEFAULT_CIRCLE_TARGET * metrics.density);
@@ -454,17 +668,25 @@ public class RefreshLayout extends ViewGroup {
         mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
         setNestedScrollingEnabled(true);
 
+        // The circle view is laid out at this offset once it is created
         mHeaderOriginalOffsetTop = mHeaderCurrentTargetOffsetTop = -mCircleDiameter;
-        moveToStart(1.0f);
 
         final TypedArray a = context.obtainStyledAttributes(attrs, LAYOUT_ATTRS);
         setEnabled(a.getBoolean(0, true));
         a.recycle();
 
-        mProgressBar = new SwipeProgressBar(this);
         mProgressBarHeight = (int) (metrics.density * PROGRESS_BAR_HEIGHT);
     }
 
+    /**
+     * @return The engine that all timing of this layout goes through. Tests
+     *         can set a clock they step by hand as its clock and scheduler.
+     */
+    @VisibleForTesting
+    FrameEngine getFrameEngine() {
+        return mEngine;
+    }
+
     @Override
     protected int getChildDrawingOrder(int childCount, int i) {
         if (mCircleViewIndex < 0) {
@@ -481,13 +703,71 @@ public class RefreshLayout extends ViewGroup {
         }
     }
 
+    /**
+     * Create the header views if they don't exist yet. Most layouts never
+     * refresh the header, or only after the first frame, so they are not
+     * created in the constructor.
+     */
+    @VisibleForTesting
+    void ensureHeader() {
+        if (mCircleView != null) {
+            return;
+        }
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("RefreshLayout#ensureHeader");
+        }
+        try {
+            createProgressView();
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
+            }
+        }
+    }
+
     private void createProgressView() {
-        mCircleView = new CircleImageView(getContext(), CIRCLE_BG_LIGHT);
-        mProgress = new MaterialProgressDrawable(getContext(), this);
-        mProgress.setBackgroundColor(CIRCLE_BG_LIGHT);
+        mCircleView = new CircleImageView(getContext(), mHeaderBackgroundColor);
+        mProgress = new MaterialProgressDrawable(getContext(), this, mEngine);
+        mProgress.setBackgroundColor(mHeaderBackgroundColor);
+        if (mHeaderCircleSize != MaterialProgressDrawable.DEFAULT) {
+            mProgress.updateSizes(mHeaderCircleSize);
+        }
+        if (mHeaderColors != null) {
+            mProgress.setColorSchemeColors(mHeaderColors);
+        }
+        mProgress.setBitmapCacheEnabled(mHeaderBitmapCacheEnabled);
+        mProgress.setMetricsListener(mMetricsListener);
         mCircleView.setImageDrawable(mProgress);
-        mCircleView.setVisibility(View.GONE);
+        mCircleView.setVisibility(View.INVISIBLE);
         addView(mCircleView);
+        mCircleViewIndex = indexOfChild(mCircleView);
+
+        // Don't wait for the next layout pass, the circle is moved right away
+        if (getWidth() > 0) {
+            final int width = getWidth();
+            mCircleView.measure(MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY));
+            mCircleView.layout((width / 2 - mCircleDiameter / 2), mHeaderCurrentTargetOffsetTop,
+                    (width / 2 + mCircleDiameter / 2), mHeaderCurrentTargetOffsetTop + mCircleDiameter);
+        }
+    }
+
+    /**
+     * Create the footer progress bar if it doesn't exist yet.
+     */
+    @VisibleForTesting
+    SwipeProgressBar ensureProgressBar() {
+        if (mProgressBar == null) {
+            mProgressBar = new SwipeProgressBar(this, mEngine);
+            if (mFooterColors != null) {
+                mProgressBar.setColorScheme(mFooterColors);
+            }
+            final int width = getWidth();
+            final int height = getHeight();
+            mProgressBar.setBounds(0, height - mProgressBarHeight, width, height);
+        }
+        return mProgressBar;
     }
 
     /**
@@ -498,6 +778,204 @@ public class RefreshLayout extends ViewGroup {
         mListener = listener;
     }
 
+    /**
+     * Set the source to load data from when a refresh is triggered. Unlike
+     * {@link OnRefreshListener}, the refreshing state is cleared automatically
+     * once the load is done, fails or times out. It is used together with the
+     * listener if both are set.
+     * <p>
+     * In-flight loads of the previous source are cancelled.
+     * </p>
+     *
+     * @param source the source, or {@code null} to remove it
+     */
+    public void setRefreshSource(@Nullable RefreshSource source) {
+        mRefreshPipeline.setSource(source);
+    }
+
+    /**
+     * Set the controller to load pages for the footer. While it is set,
+     * footer triggers request its next page instead of a footer load of
+     * the {@link RefreshSource}, and it controls the footer refreshing
+     * state and whether the footer is enabled. If it is bidirectional,
+     * header triggers request its previous page while it has one.
+     * <p>
+     * The loads of the previous controller are cancelled.
+     * </p>
+     *
+     * @param controller the controller, or {@code null} to remove it
+     */
+    public void setPaginationController(@Nullable PaginationController controller) {
+        if (mPaginationController != null) {
+            mPaginationController.setLayout(null);
+        }
+        mPaginationController = controller;
+        if (controller != null) {
+            controller.setLayout(this);
+        }
+    }
+
+    /**
+     * Set the executor to run {@link RefreshSource} loads on. By default
+     * loads run on a shared pool of background threads.
+     *
+     * @param executor the executor, or {@code null} for the default one
+     */
+    public void setRefreshExecutor(@Nullable Executor executor) {
+        mRefreshPipeline.setExecutor(executor);
+    }
+
+    /**
+     * Set the timeout of each {@link RefreshSource} load. A timed out load
+     * is interrupted and reported to
+     * {@link RefreshSource#onRefreshFailed(boolean, Exception)} with a
+     * {@link java.util.concurrent.TimeoutException}. It is 30 seconds by default.
+     *
+     * @param timeout the timeout in milliseconds, 0 for none
+     */
+    public void setRefreshTimeout(long timeout) {
+        mRefreshPipeline.setTimeout(timeout);
+    }
+
+    /**
+     * Show the header progress and start a refresh. An in-flight footer
+     * load is cancelled. Does nothing if the header is already refreshing.
+     */
+    public void refreshHeader() {
+        if (mHeaderRefreshing) {
+            return;
+        }
+        if (mFooterRefreshing) {
+            mRefreshPipeline.cancel(false);
+            if (mPaginationController != null) {
+                mPaginationController.cancel();
+            }
+            setFooterRefreshing(false);
+        }
+        markRefreshTriggered(true);
+        setHeaderRefreshing(true);
+        notifyHeaderRefresh();
+    }
+
+    /**
+     * Show the footer progress and start a refresh. Does nothing if
+     * anything is refreshing.
+     */
+    public void refreshFooter() {
+        if (mHeaderRefreshing || mFooterRefreshing) {
+            return;
+        }
+        markRefreshTriggered(false);
+        setFooterRefreshing(true);
+        notifyFooterRefresh();
+    }
+
+    /**
+     * Set the listener to receive performance metrics, such as
+     * {@link RefreshMetrics}. Nothing is measured without a listener.
+     *
+     * @param listener the listener, or {@code null} to stop measuring
+     */
+    public void setOnMetricsListener(@Nullable OnMetricsListener listener) {
+        mMetricsListener = listener;
+        if (mProgress != null) {
+            mProgress.setMetricsListener(listener);
+        }
+        mHeaderTriggerTime = mHeaderCallbackTime = -1;
+        mFooterTriggerTime = mFooterCallbackTime = -1;
+    }
+
+    private void markRefreshTriggered(boolean header) {
+        if (RefreshTrace.sEnabled && !(header ? mHeaderRefreshTraced : mFooterRefreshTraced)) {
+            RefreshTrace.beginAsyncSection(header ? HEADER_REFRESH_SECTION : FOOTER_REFRESH_SECTION,
+                    System.identityHashCode(this));
+            if (header) {
+                mHeaderRefreshTraced = true;
+            } else {
+                mFooterRefreshTraced = true;
+            }
+        }
+        if (mMetricsListener != null) {
+            final long now = mEngine.getClock().currentTimeMillis();
+            if (header) {
+                mHeaderTriggerTime = now;
+            } else {
+                mFooterTriggerTime = now;
+            }
+        }
+    }
+
+    private void markRefreshCallback(boolean header) {
+        if (mMetricsListener != null) {
+            final long now = mEngine.getClock().currentTimeMillis();
+            final long triggerTime = header ? mHeaderTriggerTime : mFooterTriggerTime;
+            if (triggerTime >= 0) {
+                mMetricsListener.onTriggerLatency(header, now - triggerTime);
+            }
+            if (header) {
+                mHeaderTriggerTime = -1;
+                mHeaderCallbackTime = now;
+            } else {
+                mFooterTriggerTime = -1;
+                mFooterCallbackTime = now;
+            }
+        }
+    }
+
+    private void markRefreshCompleted(boolean header) {
+        if (header ? mHeaderRefreshTraced : mFooterRefreshTraced) {
+            RefreshTrace.endAsyncSection(header ? HEADER_REFRESH_SECTION : FOOTER_REFRESH_SECTION,
+                    System.identityHashCode(this));
+            if (header) {
+                mHeaderRefreshTraced = false;
+            } else {
+                mFooterRefreshTraced = false;
+            }
+        }
+        final long callbackTime = header ? mHeaderCallbackTime : mFooterCallbackTime;
+        if (mMetricsListener != null && callbackTime >= 0) {
+            mMetricsListener.onRefreshDuration(header,
+                    mEngine.getClock().currentTimeMillis() - callbackTime);
+        }
+        if (header) {
+            mHeaderCallbackTime = -1;
+        } else {
+            mFooterCallbackTime = -1;
+        }
+    }
+
+    private void markGestureCancelled(boolean header) {
+        if (mMetricsListener != null) {
+            mMetricsListener.onGestureCancelled(header);
+        }
+    }
+
+    private void notifyHeaderRefresh() {
+        markRefreshCallback(true);
+        // The pipeline adopts the pre-warmed load
+        mHeaderPrewarming = false;
+        if (mPaginationController != null && mPaginationController.hasPreviousPage()) {
+            mPaginationController.requestPreviousPage();
+            return;
+        }
+        if (mListener != null) {
+            mListener.onHeaderRefresh();
+        }
+        mRefreshPipeline.load(true);
+    }
+
+    private void notifyFooterRefresh() {
+        markRefreshCallback(false);
+        if (mListener != null) {
+            mListener.onFooterRefresh();
+        }
+        if (mPaginationController != null) {
+            mPaginationController.requestNextPage();
+        } else {
+            mRefreshPipeline.load(false);
+        }
+    }
+
     /**
      * Pre API 11, alpha is used to make the progress circle appear instead of scale.
      */
@@ -505,6 +983,77 @@ public class RefreshLayout extends ViewGroup {
         return android.os.Build.VERSION.SDK_INT < 11;
     }
 
+    /**
+     * Set whether header and footer animations are run as view animations,
+     * like the old versions. It is {@code true} by default below API 16.
+     * Otherwise all animations are driven by one frame callback.
+     * <p>
+     * Running animations are cleared, call it before any refresh is shown.
+     * </p>
+     *
+     * @param legacy true to use view animations
+     */
+    public void setUseLegacyAnimation(boolean legacy) {
+        mEngine.setLegacy(legacy);
+    }
+
+    /**
+     * Set whether the header spinner is drawn from a small cache of
+     * pre-rendered bitmaps. Steady spinning only rotates cached bitmaps,
+     * but the arc length changes in steps of 10 degrees.
+     * It is {@code false} by default.
+     *
+     * @param enabled true to cache the spinner in bitmaps
+     */
+    public void setHeaderBitmapCacheEnabled(boolean enabled) {
+        mHeaderBitmapCacheEnabled = enabled;
+        if (mProgress != null) {
+            mProgress.setBitmapCacheEnabled(enabled);
+        }
+    }
+
+    /**
+     * @return The number of header spinner frames drawn from a cached bitmap,
+     *         0 if the cache is disabled
+     * @see #setHeaderBitmapCacheEnabled(boolean)
+     */
+    public int getHeaderBitmapCacheHitCount() {
+        final RingBitmapCache cache = mProgress != null ? mProgress.getBitmapCache() : null;
+        return cache != null ? cache.getHitCount() : 0;
+    }
+
+    /**
+     * @return The ratio of header spinner frames drawn from a cached bitmap,
+     *         in [0..1], 0 if the cache is disabled
+     * @see #setHeaderBitmapCacheEnabled(boolean)
+     */
+    public float getHeaderBitmapCacheHitRate() {
+        final RingBitmapCache cache = mProgress != null ? mProgress.getBitmapCache() : null;
+        return cache != null ? cache.getHitRate() : 0.0f;
+    }
+
+    /**
+     * Set whether RefreshLayouts emit systrace sections for measure, layout,
+     * draw, touch handling and header dragging, and async sections spanning
+     * each refresh from trigger to completion. It is {@code false} by default,
+     * and costs nothing but a field read when off.
+     *
+     * @param enabled true to emit trace sections
+     */
+    public static void setTraceEnabled(boolean enabled) {
+        RefreshTrace.setEnabled(enabled);
+    }
+
+    /**
+     * Set the memory cap of the header shadow bitmaps shared by all
+     * RefreshLayouts. Shadows are only drawn from bitmaps below API 21.
+     *
+     * @param maxBytes the cap in bytes, 0 to disable sharing
+     */
+    public static void setShadowCacheMaxBytes(int maxBytes) {
+        ShadowBitmapCache.setMaxBytes(maxBytes);
+    }
+
     /**
      * Is user allowed to swipe header
      */
@@ -519,6 +1068,24 @@ public class RefreshLayout extends ViewGroup {
      */
     public void setEnableSwipeHeader(boolean enable) {
         mEnableSwipeHeader = enable;
+        if (!enable) {
+            mHeaderPrefetcher.reset();
+        }
+    }
+
+    /**
+     * Set whether the progress circle is brought to the front of the other children
+     * each time it moves. It is {@code true} by default.
+     * <p>
+     * Bringing a child to front reorders the children and requests a layout pass,
+     * set it to {@code false} to move the circle by offset only. The circle is
+     * still drawn last, see {@link #getChildDrawingOrder(int, int)}.
+     * </p>
+     *
+     * @param bringToFront false to move the progress circle without layout
+     */
+    public void setHeaderBringToFront(boolean bringToFront) {
+        mHeaderBringToFront = bringToFront;
     }
 
     /**
@@ -535,6 +1102,9 @@ public class RefreshLayout extends ViewGroup {
      */
     public void setEnableSwipeFooter(boolean enable) {
         mEnableSwipeFooter = enable;
+        if (!enable) {
+            mBoundaryPrefetcher.reset();
+        }
     }
 
     /**
@@ -551,6 +1121,7 @@ public class RefreshLayout extends ViewGroup {
 
         if (refreshing && mHeaderRefreshing != refreshing) {
             // scale and show
+            ensureHeader();
             mHeaderRefreshing = refreshing;
             int endTarget = 0;
             if (!mHeaderUsingCustomStart) {
@@ -567,6 +1138,73 @@ public class RefreshLayout extends ViewGroup {
         }
     }
 
+    /**
+     * Set when the footer starts loading before the user reaches the bottom.
+     * The scroll position and speed of the child are watched, and
+     * {@link OnRefreshListener#onFooterRefresh()} is called once the lead
+     * is reached. It is {@link #PREFETCH_NONE} by default.
+     * <p>
+     * Nothing is loaded if the footer swipe is disabled, see
+     * {@link #setEnableSwipeFooter(boolean)}. {@link #PREFETCH_ITEMS} counts
+     * the children of the child, use {@link #PREFETCH_PIXELS} or
+     * {@link #PREFETCH_MILLIS} for a ScrollView.
+     * </p>
+     *
+     * @param unit one of {@link #PREFETCH_NONE}, {@link #PREFETCH_ITEMS},
+     *             {@link #PREFETCH_PIXELS} or {@link #PREFETCH_MILLIS}
+     * @param lead how early to load, in the unit
+     */
+    public void setFooterPrefetch(@PrefetchUnit int unit, int lead) {
+        mBoundaryPrefetcher.setLead(unit, lead);
+    }
+
+    /**
+     * Set when the header loads the previous page before the user reaches
+     * the top. Only used with a bidirectional {@link PaginationController},
+     * see {@link PaginationController#setBidirectional(boolean)}. It is
+     * {@link #PREFETCH_NONE} by default.
+     *
+     * @param unit one of {@link #PREFETCH_NONE}, {@link #PREFETCH_ITEMS},
+     *             {@link #PREFETCH_PIXELS} or {@link #PREFETCH_MILLIS}
+     * @param lead how early to load, in the unit
+     */
+    public void setHeaderPrefetch(@PrefetchUnit int unit, int lead) {
+        mHeaderPrefetcher.setLead(unit, lead);
+    }
+
+    private void prefetchHeader() {
+        if (mTarget == null || !mEnableSwipeHeader) {
+            return;
+        }
+        final boolean prefetch = mHeaderPrefetcher.onScroll(mTarget);
+        if (prefetch && mPaginationController != null
+                && mPaginationController.hasPreviousPage()
+                && isEnabled() && !mHeaderRefreshing && !mFooterRefreshing
+                && !mIsHeaderBeingDragged && !mIsFooterBeingDragged) {
+            markRefreshTriggered(true);
+            setHeaderRefreshing(true);
+            notifyHeaderRefresh();
+        }
+    }
+
+    private void prefetchFooter() {
+        // No need to watch the bottom while the footer is disabled
+        if (mTarget == null || !mEnableSwipeFooter) {
+            return;
+        }
+        // Always sample, the velocity is needed once loading is possible
+        final boolean prefetch = mBoundaryPrefetcher.onScroll(mTarget);
+        if (prefetch && (mListener != null || mRefreshPipeline.hasSource()
+                || mPaginationController != null)
+                && isEnabled() && mEnableSwipeFooter
+                && !mHeaderRefreshing && !mFooterRefreshing
+                && !mIsHeaderBeingDragged && !mIsFooterBeingDragged) {
+            markRefreshTriggered(false);
+            setFooterRefreshing(true);
+            notifyFooterRefresh();
+        }
+    }
+
     /**
      * Notify the widget that refresh state has changed. Do not call this when
      * refresh is triggered by a swipe gesture.
@@ -584,15 +1222,18 @@ public class RefreshLayout extends ViewGroup {
             mFooterCurrPercentage = 0;
             mFooterRefreshing = refreshing;
             if (mFooterRefreshing) {
-                mProgressBar.start();
+                ensureProgressBar().start();
             } else {
-                mProgressBar.stop();
+                if (mProgressBar != null) {
+                    mProgressBar.stop();
+                }
+                markRefreshCompleted(false);
             }
         }
     }
 
     @SuppressLint("NewApi")
-    private void startScaleUpAnimation(AnimationListener listener) {
+    private void startScaleUpAnimation(FrameAnimation.Listener listener) {
         mCircleView.setVisibility(View.VISIBLE);
         if (android.os.Build.VERSION.SDK_INT >= 11) {
             // Pre API 11, alpha is used in place of scale up to show the
@@ -600,18 +1241,11 @@ public class RefreshLayout extends ViewGroup {
             // Don't adjust the alpha during appearance otherwise.
             mProgress.setAlpha(MAX_ALPHA);
         }
-        mHeaderScaleAnimation = new Animation() {
-            @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
-                setAnimationProgress(interpolatedTime);
-            }
-        };
         mHeaderScaleAnimation.setDuration(mMediumAnimationDuration);
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
         }
-        mCircleView.clearAnimation();
-        mCircleView.startAnimation(mHeaderScaleAnimation);
+        startHeaderAnimation(mHeaderScaleAnimation);
     }
 
     /**
@@ -638,57 +1272,45 @@ public class RefreshLayout extends ViewGroup {
             ensureTarget();
             mHeaderRefreshing = refreshing;
             if (mHeaderRefreshing) {
+                ensureHeader();
                 animateHeaderOffsetToCorrectPosition(mHeaderCurrentTargetOffsetTop,
                     mHeaderRefreshListener);
             } else {
                 startScaleDownAnimation(mHeaderRefreshListener);
+                markRefreshCompleted(true);
             }
         }
     }
 
-    void startScaleDownAnimation(Animation.AnimationListener listener) {
-        mHeaderScaleDownAnimation = new Animation() {
-            @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
-                setAnimationProgress(1 - interpolatedTime);
-            }
-        };
+    void startScaleDownAnimation(FrameAnimation.Listener listener) {
         mHeaderScaleDownAnimation.setDuration(SCALE_DOWN_DURATION);
         mCircleView.setAnimationListener(listener);
-        mCircleView.clearAnimation();
-        mCircleView.startAnimation(mHeaderScaleDownAnimation);
+        startHeaderAnimation(mHeaderScaleDownAnimation);
     }
 
     @SuppressLint("NewApi")
     private void startProgressAlphaStartAnimation() {
-        mHeaderAlphaStartAnimation = startAlphaAnimation(mProgress.getAlpha(), STARTING_PROGRESS_ALPHA);
+        startAlphaAnimation(mHeaderAlphaStartAnimation, mProgress.getAlpha(), STARTING_PROGRESS_ALPHA);
     }
 
     @SuppressLint("NewApi")
     private void startProgressAlphaMaxAnimation() {
-        mHeaderAlphaMaxAnimation = startAlphaAnimation(mProgress.getAlpha(), MAX_ALPHA);
+        startAlphaAnimation(mHeaderAlphaMaxAnimation, mProgress.getAlpha(), MAX_ALPHA);
     }
 
     @SuppressLint("NewApi")
-    private Animation startAlphaAnimation(final int startingAlpha, final int endingAlpha) {
+    private void startAlphaAnimation(ProgressAlphaAnimation alpha, int startingAlpha, int endingAlpha) {
         // Pre API 11, alpha is used in place of scale. Don't also use it to
         // show the trigger point.
         if (mHeaderScale && isAlphaUsedForScale()) {
-            return null;
+            return;
         }
-        Animation alpha = new Animation() {
-            @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
-                mProgress.setAlpha(
-                        (int) (startingAlpha + ((endingAlpha - startingAlpha) * interpolatedTime)));
-            }
-        };
+        alpha.mStartingAlpha = startingAlpha;
+        alpha.mEndingAlpha = endingAlpha;
         alpha.setDuration(ALPHA_ANIMATION_DURATION);
         // Clear out the previous animation listeners.
         mCircleView.setAnimationListener(null);
-        mCircleView.clearAnimation();
-        mCircleView.startAnimation(alpha);
-        return alpha;
+        startHeaderAnimation(alpha);
     }
 
     /**
@@ -706,8 +1328,11 @@ public class RefreshLayout extends ViewGroup {
      * @param color
      */
     public void setHeaderProgressBackgroundColorSchemeColor(@ColorInt int color) {
-        mCircleView.setBackgroundColor(color);
-        mProgress.setBackgroundColor(color);
+        mHeaderBackgroundColor = color;
+        if (mCircleView != null) {
+            mCircleView.setBackgroundColor(color);
+            mProgress.setBackgroundColor(color);
+        }
     }
 
     /**
@@ -735,7 +1360,10 @@ public class RefreshLayout extends ViewGroup {
      */
     public void setHeaderColorSchemeColors(@ColorInt int... colors) {
         ensureTarget();
-        mProgress.setColorSchemeColors(colors);
+        mHeaderColors = colors;
+        if (mProgress != null) {
+            mProgress.setColorSchemeColors(colors);
+        }
     }
 
     /**
@@ -759,7 +1387,10 @@ public class RefreshLayout extends ViewGroup {
      */
     public void setFooterColorSchemeColors(int... colors) {
         ensureTarget();
-        mProgressBar.setColorScheme(colors);
+        mFooterColors = colors;
+        if (mProgressBar != null) {
+            mProgressBar.setColorScheme(colors);
+        }
     }
 
     /**
@@ -819,63 +1450,125 @@ public class RefreshLayout extends ViewGroup {
         }
         */
         mFooterCurrPercentage = percent;
-        mProgressBar.setTriggerPercentage(percent);
+        if (percent == 0f && mProgressBar == null) {
+            // Nothing to hide yet
+            return;
+        }
+        ensureProgressBar().setTriggerPercentage(percent);
+    }
+
+    @Override
+    public void requestLayout() {
+        mRequestLayoutCount++;
+        super.requestLayout();
+    }
+
+    @Override
+    public void invalidate() {
+        mInvalidateCount++;
+        super.invalidate();
+    }
+
+    @Override
+    public void invalidate(int l, int t, int r, int b) {
+        mInvalidateCount++;
+        super.invalidate(l, t, r, b);
     }
 
     @Override
     public void draw(@NonNull Canvas canvas) {
-        super.draw(canvas);
-        mProgressBar.draw(canvas);
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("RefreshLayout#draw");
+        }
+        try {
+            super.draw(canvas);
+            if (mProgressBar != null) {
+                mProgressBar.draw(canvas);
+            }
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
+            }
+        }
     }
 
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        final int width = getMeasuredWidth();
-        final int height = getMeasuredHeight();
-        if (getChildCount() == 0) {
-            return;
-        }
-        if (mTarget == null) {
-            ensureTarget();
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("RefreshLayout#onLayout");
         }
-        if (mTarget == null) {
-            return;
+        try {
+            mLayoutCount++;
+            final int width = getMeasuredWidth();
+            final int height = getMeasuredHeight();
+            if (getChildCount() == 0) {
+                return;
+            }
+            if (mTarget == null) {
+                ensureTarget();
+            }
+            if (mTarget == null) {
+                return;
+            }
+            final View child = mTarget;
+            final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
+            final int childLeft = getPaddingLeft() + lp.leftMargin;
+            final int childTop = getPaddingTop() + lp.topMargin;
+            final int childWidth = width - getPaddingLeft() - getPaddingRight() - lp.leftMargin - lp.rightMargin;
+            final int childHeight = height - getPaddingTop() - getPaddingBottom() - lp.topMargin - lp.bottomMargin;
+            child.layout(childLeft, childTop, childLeft + childWidth, childTop + childHeight);
+            if (mCircleView != null) {
+                int circleWidth = mCircleView.getMeasuredWidth();
+                int circleHeight = mCircleView.getMeasuredHeight();
+                mCircleView.layout((width / 2 - circleWidth / 2), mHeaderCurrentTargetOffsetTop,
+                        (width / 2 + circleWidth / 2), mHeaderCurrentTargetOffsetTop + circleHeight);
+            }
+            if (mProgressBar != null) {
+                mProgressBar.setBounds(0, height - mProgressBarHeight, width, height);
+            }
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
+            }
         }
-        final View child = mTarget;
-        final MarginLayoutParams lp = (MarginLayoutParams) child.getLayoutParams();
-        final int childLeft = getPaddingLeft() + lp.leftMargin;
-        final int childTop = getPaddingTop() + lp.topMargin;
-        final int childWidth = width - getPaddingLeft() - getPaddingRight() - lp.leftMargin - lp.rightMargin;
-        final int childHeight = height - getPaddingTop() - getPaddingBottom() - lp.topMargin - lp.bottomMargin;
-        child.layout(childLeft, childTop, childLeft + childWidth, childTop + childHeight);
-        int circleWidth = mCircleView.getMeasuredWidth();
-        int circleHeight = mCircleView.getMeasuredHeight();
-        mCircleView.layout((width / 2 - circleWidth / 2), mHeaderCurrentTargetOffsetTop,
-                (width / 2 + circleWidth / 2), mHeaderCurrentTargetOffsetTop + circleHeight);
-        mProgressBar.setBounds(0, height - mProgressBarHeight, width, height);
     }
 
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
-        if (mTarget == null) {
-            ensureTarget();
-        }
-        if (mTarget == null) {
-            return;
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("RefreshLayout#onMeasure");
         }
-        final MarginLayoutParams lp = (MarginLayoutParams) mTarget.getLayoutParams();
-        mTarget.measure(
-                MeasureSpec.makeMeasureSpec(getMeasuredWidth() - getPaddingLeft() - getPaddingRight() - lp.leftMargin - lp.rightMargin, MeasureSpec.EXACTLY),
-                MeasureSpec.makeMeasureSpec(getMeasuredHeight() - getPaddingTop() - getPaddingBottom() - lp.topMargin - lp.bottomMargin, MeasureSpec.EXACTLY));
-        mCircleView.measure(MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY),
-                MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY));
-        mCircleViewIndex = -1;
-        // Get the index of the circleview.
-        for (int index = 0; index < getChildCount(); index++) {
-            if (getChildAt(index) == mCircleView) {
-                mCircleViewIndex = index;
-                break;
+        try {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            if (mTarget == null) {
+                ensureTarget();
+            }
+            if (mTarget == null) {
+                return;
+            }
+            final MarginLayoutParams lp = (MarginLayoutParams) mTarget.getLayoutParams();
+            mTarget.measure(
+                    MeasureSpec.makeMeasureSpec(getMeasuredWidth() - getPaddingLeft() - getPaddingRight() - lp.leftMargin - lp.rightMargin, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(getMeasuredHeight() - getPaddingTop() - getPaddingBottom() - lp.topMargin - lp.bottomMargin, MeasureSpec.EXACTLY));
+            mCircleViewIndex = -1;
+            if (mCircleView == null) {
+                return;
+            }
+            mCircleView.measure(MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(mCircleDiameter, MeasureSpec.EXACTLY));
+            // Get the index of the circleview.
+            for (int index = 0; index < getChildCount(); index++) {
+                if (getChildAt(index) == mCircleView) {
+                    mCircleViewIndex = index;
+                    break;
+                }
+            }
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
             }
         }
     }
@@ -919,6 +1612,239 @@ public class RefreshLayout extends ViewGroup {
      */
     public void setOnChildScrollUpCallback(@Nullable OnChildScrollCallback callback) {
         mChildScrollCallback = callback;
+        mBoundaryCache.invalidate();
+    }
+
+    /**
+     * Set whether the results of {@link #canChildScrollUp()} and
+     * {@link #canChildScrollDown()} are cached during a gesture. The cache
+     * is dropped when the child scrolls, when the view tree is laid out and
+     * when a gesture starts or ends. It is {@code true} by default.
+     * <p>
+     * Disable it if the child scrolls without calling
+     * {@link View#onScrollChanged(int, int, int, int)}.
+     * </p>
+     *
+     * @param enabled false to check the child on each touch event
+     */
+    public void setScrollBoundaryCacheEnabled(boolean enabled) {
+        mBoundaryCache.setEnabled(enabled);
+    }
+
+    /**
+     * Set whether drag moves are applied once per frame. All touch samples
+     * of the frame, historical ones included, are folded into one update
+     * of the spinner or the footer trigger. It is {@code true} by default
+     * since API 16.
+     *
+     * @param enabled false to update on each touch event
+     */
+    public void setDragBatchingEnabled(boolean enabled) {
+        mDragBatching = enabled;
+        if (!enabled) {
+            cancelDragUpdate();
+        }
+    }
+
+    /**
+     * Set whether batched drag moves predict the finger position at the
+     * frame time from its velocity, which hides part of the touch latency.
+     * The prediction is at most 20 milliseconds ahead. It has no effect
+     * if drag batching is disabled. It is {@code false} by default.
+     *
+     * @param enabled true to predict the finger position
+     */
+    public void setDragPredictionEnabled(boolean enabled) {
+        mDragBatcher.setPredictionEnabled(enabled);
+    }
+
+    /**
+     * Set whether the header load starts as soon as a drag crosses the
+     * trigger distance, instead of once the released spinner settles. The
+     * {@link RefreshSource} load starts right away, and its result is held
+     * until the release commits the refresh. Releasing before the trigger
+     * distance cancels it. It is {@code false} by default.
+     * <p>
+     * Headers that load the previous page of a {@link PaginationController}
+     * are not pre-warmed.
+     * </p>
+     *
+     * @param enabled true to pre-warm header loads
+     */
+    public void setHeaderPrewarmEnabled(boolean enabled) {
+        mHeaderPrewarm = enabled;
+        if (!enabled) {
+            abortHeaderPrewarm();
+        }
+    }
+
+    /**
+     * Set the listener notified of header pre-warms, see
+     * {@link #setHeaderPrewarmEnabled(boolean)}.
+     *
+     * @param listener the listener, or {@code null} to remove it
+     */
+    public void setOnHeaderPrewarmListener(@Nullable OnHeaderPrewarmListener listener) {
+        mHeaderPrewarmListener = listener;
+    }
+
+    private void startHeaderPrewarm() {
+        if (!mHeaderPrewarm || mHeaderPrewarming
+                || (mPaginationController != null && mPaginationController.hasPreviousPage())) {
+            return;
+        }
+        mHeaderPrewarming = true;
+        if (mHeaderPrewarmListener != null) {
+            mHeaderPrewarmListener.onHeaderPrewarm();
+        }
+        mRefreshPipeline.prewarm();
+    }
+
+    private void abortHeaderPrewarm() {
+        if (!mHeaderPrewarming) {
+            return;
+        }
+        mHeaderPrewarming = false;
+        mRefreshPipeline.abortPrewarm();
+        if (mHeaderPrewarmListener != null) {
+            mHeaderPrewarmListener.onHeaderPrewarmCancelled();
+        }
+    }
+
+    /**
+     * Set whether the header spinner settles like a critically damped
+     * spring after release, starting with the speed of the finger, instead
+     * of fixed-duration animations. A touch catches the spinner while it
+     * returns to the start position, and the new drag continues from where
+     * it is. Scaled spinners still scale down, see
+     * {@link #setHeaderProgressViewOffset(boolean, int, int)}.
+     * It is {@code false} by default.
+     *
+     * @param enabled true to settle like a spring
+     */
+    public void setSpringReleaseEnabled(boolean enabled) {
+        mSpringRelease = enabled;
+        if (!enabled && mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    /**
+     * Stop the spring of the header if it runs to the start position, and
+     * keep the spinner where it is for the next drag.
+     */
+    private void catchHeaderSpring() {
+        if (mCircleView == null || mHeaderRefreshing || !isAnimationRunning(mHeaderSpring)) {
+            return;
+        }
+        // Don't let the end listener scale the spinner down
+        mCircleView.setAnimationListener(null);
+        mEngine.clear(mCircleView);
+        mHeaderCaughtOverscroll = SpinnerMath.overscrollForOffsetTop(mHeaderCurrentTargetOffsetTop,
+                mHeaderOriginalOffsetTop, mHeaderTotalDragDistance, getHeaderSlingshotDistance());
+    }
+
+    /**
+     * Let the caught spinner return to the start position if no drag took it.
+     */
+    private void releaseCaughtHeader() {
+        if (mHeaderCaughtOverscroll < 0) {
+            return;
+        }
+        mHeaderCaughtOverscroll = -1;
+        if (!mHeaderRefreshing && !mIsHeaderBeingDragged) {
+            animateHeaderOffsetToStartPosition(mHeaderCurrentTargetOffsetTop,
+                    mHeaderScale ? null : mScaleDownOnEndListener);
+        }
+    }
+
+    /**
+     * @return The spinner velocity in pixels per millisecond for the finger
+     *         velocity at release.
+     */
+    private float getHeaderReleaseVelocity(float overscrollTop) {
+        if (!mSpringRelease || mVelocityTracker == null || mActivePointerId == INVALID_POINTER) {
+            return 0;
+        }
+        mVelocityTracker.computeCurrentVelocity(1);
+        final float fingerVelocity = mVelocityTracker.getYVelocity(mActivePointerId);
+        // The spinner moves slower than the finger, and slower again past the trigger
+        final float slingshotDist = getHeaderSlingshotDistance();
+        final int step = 10;
+        final int top = SpinnerMath.targetOffsetTop(overscrollTop, mHeaderOriginalOffsetTop,
+                mHeaderTotalDragDistance, slingshotDist);
+        final int nextTop = SpinnerMath.targetOffsetTop(overscrollTop + step,
+                mHeaderOriginalOffsetTop, mHeaderTotalDragDistance, slingshotDist);
+        return fingerVelocity * DRAG_RATE * (nextTop - top) / step;
+    }
+
+    private float getHeaderSlingshotDistance() {
+        return mHeaderUsingCustomStart ? mHeaderSpinnerOffsetEnd - mHeaderOriginalOffsetTop
+                : mHeaderSpinnerOffsetEnd;
+    }
+
+    private void scheduleDragUpdate() {
+        if (!mDragUpdateScheduled) {
+            mDragUpdateScheduled = true;
+            mEngine.getScheduler().postFrameCallback(mDragUpdate);
+        }
+    }
+
+    private void cancelDragUpdate() {
+        if (mDragUpdateScheduled) {
+            mDragUpdateScheduled = false;
+            mEngine.getScheduler().removeCallbacks(mDragUpdate);
+        }
+    }
+
+    private boolean checkChildScrollUp() {
+        final ScrollBoundaryCache cache = mBoundaryCache;
+        if (!cache.has(ScrollBoundaryCache.UP)) {
+            cache.put(ScrollBoundaryCache.UP, canChildScrollUp());
+        }
+        return cache.get(ScrollBoundaryCache.UP);
+    }
+
+    private boolean checkChildScrollDown() {
+        final ScrollBoundaryCache cache = mBoundaryCache;
+        if (!cache.has(ScrollBoundaryCache.DOWN)) {
+            cache.put(ScrollBoundaryCache.DOWN, canChildScrollDown());
+        }
+        return cache.get(ScrollBoundaryCache.DOWN);
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        final int action = MotionEventCompat.getActionMasked(ev);
+        if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_UP
+                || action == MotionEvent.ACTION_CANCEL) {
+            mBoundaryCache.invalidate();
+        }
+        if (action != MotionEvent.ACTION_MOVE) {
+            // The gesture ends or the active pointer might change
+            cancelDragUpdate();
+            mDragBatcher.reset();
+        }
+        if (mSpringRelease) {
+            if (mVelocityTracker == null) {
+                mVelocityTracker = VelocityTracker.obtain();
+            }
+            if (action == MotionEvent.ACTION_DOWN) {
+                mVelocityTracker.clear();
+                catchHeaderSpring();
+            }
+            mVelocityTracker.addMovement(ev);
+        }
+        final boolean handled = super.dispatchTouchEvent(ev);
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            releaseCaughtHeader();
+            // The gesture ended without triggering the refresh
+            if (mHeaderPrewarming && !mHeaderRefreshing) {
+                abortHeaderPrewarm();
+            }
+        }
+        return handled;
     }
 
     /**
@@ -964,6 +1890,10 @@ public class RefreshLayout extends ViewGroup {
 
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("RefreshLayout#onInterceptTouchEvent");
+        }
         try {
             ensureTarget();
 
@@ -976,11 +1906,11 @@ public class RefreshLayout extends ViewGroup {
             boolean mIsBeingDragged = false;
 
             if (isEnabled() && !mReturningToStart && !mHeaderRefreshing && !mFooterRefreshing) {
-                if (!mIsFooterBeingDragged && mEnableSwipeHeader && !canChildScrollUp()) {
+                if (!mIsFooterBeingDragged && mEnableSwipeHeader && !checkChildScrollUp()) {
                     mIsBeingDragged = headerInterceptTouchEvent(ev);
                 }
 
-                if (!mIsHeaderBeingDragged && mEnableSwipeFooter && !canChildScrollDown()) {
+                if (!mIsHeaderBeingDragged && mEnableSwipeFooter && !checkChildScrollDown()) {
                     mIsBeingDragged |= footerInterceptTouchEvent(ev);
                 }
             }
@@ -988,6 +1918,10 @@ public class RefreshLayout extends ViewGroup {
             return mIsBeingDragged;
         } catch (Exception e) {
             return false;
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
+            }
         }
     }
 
@@ -996,7 +1930,9 @@ public class RefreshLayout extends ViewGroup {
         final int action = MotionEventCompat.getActionMasked(ev);
         switch (action) {
             case MotionEvent.ACTION_DOWN:
-                setHeaderTargetOffsetTopAndBottom(mHeaderOriginalOffsetTop - mCircleView.getTop(), true);
+                if (mHeaderCaughtOverscroll < 0) {
+                    setHeaderTargetOffsetTopAndBottom(mHeaderOriginalOffsetTop - mHeaderCurrentTargetOffsetTop, true);
+                }
                 mActivePointerId = ev.getPointerId(0);
                 mIsHeaderBeingDragged = false;
 
@@ -1137,8 +2073,8 @@ public class RefreshLayout extends ViewGroup {
         // If we get back to mTotalUnconsumed == 0 and there is more to go, hide
         // the circle so it isn't exposed if its blocking content is moved
         if (mHeaderUsingCustomStart && dy > 0 && mTotalUnconsumed == 0
-                && Math.abs(dy - consumed[1]) > 0) {
-            mCircleView.setVisibility(View.GONE);
+                && Math.abs(dy - consumed[1]) > 0 && mCircleView != null) {
+            mCircleView.setVisibility(View.INVISIBLE);
         }
 
         // Now let our nested parent consume the leftovers
@@ -1181,7 +2117,10 @@ public class RefreshLayout extends ViewGroup {
         // 'offset in window 'functionality to see if we have been moved from the event.
         // This is a decent indication of whether we should take over the event stream or not.
         final int dy = dyUnconsumed + mParentOffsetInWindow[1];
-        if (dy < 0 && !canChildScrollUp()) {
+        if (dyConsumed != 0) {
+            mBoundaryCache.invalidate();
+        }
+        if (dy < 0 && !checkChildScrollUp()) {
             mTotalUnconsumed += Math.abs(dy);
             moveSpinner(mTotalUnconsumed);
         }
@@ -1249,95 +2188,97 @@ public class RefreshLayout extends ViewGroup {
         return mNestedScrollingChildHelper.dispatchNestedPreFling(velocityX, velocityY);
     }
 
-    private boolean isAnimationRunning(Animation animation) {
+    private boolean isAnimationRunning(FrameAnimation animation) {
         return animation != null && animation.hasStarted() && !animation.hasEnded();
     }
 
     @SuppressLint("NewApi")
     private void moveSpinner(float overscrollTop) {
-        mProgress.showArrow(true);
-        float originalDragPercent = overscrollTop / mHeaderTotalDragDistance;
-
-        float dragPercent = Math.min(1f, Math.abs(originalDragPercent));
-        float adjustedPercent = (float) Math.max(dragPercent - .4, 0) * 5 / 3;
-        float extraOS = Math.abs(overscrollTop) - mHeaderTotalDragDistance;
-        float slingshotDist = mHeaderUsingCustomStart ? mHeaderSpinnerOffsetEnd - mHeaderOriginalOffsetTop
-                : mHeaderSpinnerOffsetEnd;
-        float tensionSlingshotPercent = Math.max(0, Math.min(extraOS, slingshotDist * 2)
-                / slingshotDist);
-        float tensionPercent = (float) ((tensionSlingshotPercent / 4) - Math.pow(
-                (tensionSlingshotPercent / 4), 2)) * 2f;
-        float extraMove = (slingshotDist) * tensionPercent * 2;
-
-        int targetY = mHeaderOriginalOffsetTop + (int) ((slingshotDist * dragPercent) + extraMove);
-        // where 1.0f is a full circle
-        if (mCircleView.getVisibility() != View.VISIBLE) {
-            mCircleView.setVisibility(View.VISIBLE);
-        }
-        if (!mHeaderScale) {
-            ViewCompat.setScaleX(mCircleView, 1f);
-            ViewCompat.setScaleY(mCircleView, 1f);
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("RefreshLayout#moveSpinner");
         }
+        try {
+            final long startTime = mMetricsListener != null ? System.nanoTime() : 0;
+            ensureHeader();
+            mProgress.showArrow(true);
+            float dragPercent = SpinnerMath.dragPercent(overscrollTop, mHeaderTotalDragDistance);
+            float adjustedPercent = SpinnerMath.adjustedPercent(dragPercent);
+            float slingshotDist = getHeaderSlingshotDistance();
+            float tensionPercent = SpinnerMath.tensionPercent(overscrollTop, mHeaderTotalDragDistance,
+                    slingshotDist);
+
+            int targetY = SpinnerMath.targetOffsetTop(mHeaderOriginalOffsetTop, slingshotDist,
+                    dragPercent, tensionPercent);
+            // where 1.0f is a full circle
+            if (mCircleView.getVisibility() != View.VISIBLE) {
+                mCircleView.setVisibility(View.VISIBLE);
+            }
+            if (!mHeaderScale) {
+                ViewCompat.setScaleX(mCircleView, 1f);
+                ViewCompat.setScaleY(mCircleView, 1f);
+            }
 
-        if (mHeaderScale) {
-            setAnimationProgress(Math.min(1f, overscrollTop / mHeaderTotalDragDistance));
-        }
-        if (overscrollTop < mHeaderTotalDragDistance) {
-            if (mProgress.getAlpha() > STARTING_PROGRESS_ALPHA
-                    && !isAnimationRunning(mHeaderAlphaStartAnimation)) {
-                // Animate the alpha
-                startProgressAlphaStartAnimation();
+            if (mHeaderScale) {
+                setAnimationProgress(Math.min(1f, overscrollTop / mHeaderTotalDragDistance));
             }
-        } else {
-            if (mProgress.getAlpha() < MAX_ALPHA && !isAnimationRunning(mHeaderAlphaMaxAnimation)) {
-                // Animate the alpha
-                startProgressAlphaMaxAnimation();
+            if (overscrollTop > mHeaderTotalDragDistance) {
+                startHeaderPrewarm();
+            }
+            if (overscrollTop < mHeaderTotalDragDistance) {
+                if (mProgress.getAlpha() > STARTING_PROGRESS_ALPHA
+                        && !isAnimationRunning(mHeaderAlphaStartAnimation)) {
+                    // Animate the alpha
+                    startProgressAlphaStartAnimation();
+                }
+            } else {
+                if (mProgress.getAlpha() < MAX_ALPHA && !isAnimationRunning(mHeaderAlphaMaxAnimation)) {
+                    // Animate the alpha
+                    startProgressAlphaMaxAnimation();
+                }
+            }
+            float strokeStart = adjustedPercent * .8f;
+            mProgress.setStartEndTrim(0f, Math.min(MAX_PROGRESS_ANGLE, strokeStart));
+            mProgress.setArrowScale(Math.min(1f, adjustedPercent));
+
+            mProgress.setProgressRotation(SpinnerMath.dragRotation(adjustedPercent, tensionPercent));
+            setHeaderTargetOffsetTopAndBottom(targetY - mHeaderCurrentTargetOffsetTop, true /* requires update */);
+            if (mMetricsListener != null) {
+                mMetricsListener.onDragFrame(System.nanoTime() - startTime);
+            }
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
             }
         }
-        float strokeStart = adjustedPercent * .8f;
-        mProgress.setStartEndTrim(0f, Math.min(MAX_PROGRESS_ANGLE, strokeStart));
-        mProgress.setArrowScale(Math.min(1f, adjustedPercent));
-
-        float rotation = (-0.25f + .4f * adjustedPercent + tensionPercent * 2) * .5f;
-        mProgress.setProgressRotation(rotation);
-        setHeaderTargetOffsetTopAndBottom(targetY - mHeaderCurrentTargetOffsetTop, true /* requires update */);
     }
 
     private void finishSpinner(float overscrollTop) {
         if (overscrollTop > mHeaderTotalDragDistance) {
+            markRefreshTriggered(true);
             setHeaderRefreshing(true, true /* notify */);
         } else {
             // cancel refresh
+            abortHeaderPrewarm();
+            markGestureCancelled(true);
             mHeaderRefreshing = false;
             mProgress.setStartEndTrim(0f, 0f);
-            Animation.AnimationListener listener = null;
+            FrameAnimation.Listener listener = null;
             if (!mHeaderScale) {
-                listener = new Animation.AnimationListener() {
-
-                    @Override
-                    public void onAnimationStart(Animation animation) {
-                    }
-
-                    @Override
-                    public void onAnimationEnd(Animation animation) {
-                        if (!mHeaderScale) {
-                            startScaleDownAnimation(null);
-                        }
-                    }
-
-                    @Override
-                    public void onAnimationRepeat(Animation animation) {
-                    }
-
-                };
+                listener = mScaleDownOnEndListener;
             }
             animateHeaderOffsetToStartPosition(mHeaderCurrentTargetOffsetTop, listener);
             mProgress.showArrow(false);
         }
+        mHeaderReleaseVelocity = 0;
     }
 
     @Override
     public boolean onTouchEvent(@NonNull MotionEvent ev) {
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("RefreshLayout#onTouchEvent");
+        }
         try {
             final int action = MotionEventCompat.getActionMasked(ev);
 
@@ -1346,11 +2287,15 @@ public class RefreshLayout extends ViewGroup {
             }
 
             if (isEnabled() && !mReturningToStart && !mHeaderRefreshing && !mFooterRefreshing) {
-                if (!mIsFooterBeingDragged && mEnableSwipeHeader && !canChildScrollUp()) {
+                if (mDragBatching && action == MotionEvent.ACTION_MOVE) {
+                    mDragBatcher.addSamples(ev, ev.findPointerIndex(mActivePointerId));
+                }
+
+                if (!mIsFooterBeingDragged && mEnableSwipeHeader && !checkChildScrollUp()) {
                     headerTouchEvent(ev);
                 }
 
-                if (!mIsHeaderBeingDragged && mEnableSwipeFooter && !canChildScrollDown()) {
+                if (!mIsHeaderBeingDragged && mEnableSwipeFooter && !checkChildScrollDown()) {
                     footerTouchEvent(ev);
                 }
             }
@@ -1358,6 +2303,10 @@ public class RefreshLayout extends ViewGroup {
             return true;
         } catch (Exception e) {
             return false;
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
+            }
         }
     }
 
@@ -1383,7 +2332,11 @@ public class RefreshLayout extends ViewGroup {
                 if (mIsHeaderBeingDragged) {
                     final float overscrollTop = (y - mInitialMotionY) * DRAG_RATE;
                     if (overscrollTop > 0) {
-                        moveSpinner(overscrollTop);
+                        if (mDragBatching) {
+                            scheduleDragUpdate();
+                        } else {
+                            moveSpinner(overscrollTop);
+                        }
                     } else {
                         return false;
                     }
@@ -1416,6 +2369,7 @@ public class RefreshLayout extends ViewGroup {
                     final float y = ev.getY(pointerIndex);
                     final float overscrollTop = (y - mInitialMotionY) * DRAG_RATE;
                     mIsHeaderBeingDragged = false;
+                    mHeaderReleaseVelocity = getHeaderReleaseVelocity(overscrollTop);
                     finishSpinner(overscrollTop);
                 }
                 mActivePointerId = INVALID_POINTER;
@@ -1444,16 +2398,29 @@ public class RefreshLayout extends ViewGroup {
         final float yDiff = y - mInitialDownY;
         if (yDiff > mTouchSlop && !mIsHeaderBeingDragged) {
             mInitialMotionY = mInitialDownY + mTouchSlop;
+            if (mHeaderCaughtOverscroll >= 0) {
+                // Continue from where the spring was caught
+                mInitialMotionY -= mHeaderCaughtOverscroll / DRAG_RATE;
+                mHeaderCaughtOverscroll = -1;
+            }
             mIsHeaderBeingDragged = true;
+            ensureHeader();
             mProgress.setAlpha(STARTING_PROGRESS_ALPHA);
         }
     }
 
     private void startFooterRefresh() {
-        removeCallbacks(mCancel);
+        markRefreshTriggered(false);
+        mEngine.getScheduler().removeCallbacks(mCancel);
         mReturnToStartPosition.run();
         setFooterRefreshing(true);
-        mListener.onFooterRefresh();
+        notifyFooterRefresh();
+    }
+
+    private float getFooterTriggerPercentage(float y) {
+        final float yDiff = y - mInitialMotionY;
+        return Interpolators.ACCELERATE.getInterpolation(
+                MathUtils.clamp(-yDiff, 0, mFooterDistanceToTriggerSync) / mFooterDistanceToTriggerSync);
     }
 
     private boolean footerTouchEvent(MotionEvent ev) {
@@ -1486,10 +2453,11 @@ public class RefreshLayout extends ViewGroup {
                 }
 
                 if (mIsFooterBeingDragged) {
-                    yDiff = y - mInitialMotionY;
-                    setTriggerPercentage(
-                            mAccelerateInterpolator.getInterpolation(
-                                    MathUtils.clamp(-yDiff, 0, mFooterDistanceToTriggerSync) / mFooterDistanceToTriggerSync));
+                    if (mDragBatching) {
+                        scheduleDragUpdate();
+                    } else {
+                        setTriggerPercentage(getFooterTriggerPercentage(y));
+                    }
                 }
                 break;
 
@@ -1525,6 +2493,9 @@ public class RefreshLayout extends ViewGroup {
                     // User movement passed distance; trigger a refresh
                     startFooterRefresh();
                 } else {
+                    if (mIsFooterBeingDragged) {
+                        markGestureCancelled(false);
+                    }
                     mCancel.run();
                 }
 
@@ -1537,45 +2508,66 @@ public class RefreshLayout extends ViewGroup {
         return mIsFooterBeingDragged;
     }
 
-    private void animateHeaderOffsetToCorrectPosition(int from, AnimationListener listener) {
+    private void animateHeaderOffsetToCorrectPosition(int from, FrameAnimation.Listener listener) {
+        if (mSpringRelease) {
+            startHeaderSpring(from, getHeaderRefreshingOffsetTop(), listener);
+            return;
+        }
         mHeaderFrom = from;
         mAnimateToCorrectPosition.reset();
         mAnimateToCorrectPosition.setDuration(ANIMATE_TO_TRIGGER_DURATION);
-        mAnimateToCorrectPosition.setInterpolator(mDecelerateInterpolator);
+        mAnimateToCorrectPosition.setInterpolator(Interpolators.DECELERATE);
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
         }
-        mCircleView.clearAnimation();
-        mCircleView.startAnimation(mAnimateToCorrectPosition);
+        startHeaderAnimation(mAnimateToCorrectPosition);
     }
 
-    private void animateHeaderOffsetToStartPosition(int from, AnimationListener listener) {
+    private void animateHeaderOffsetToStartPosition(int from, FrameAnimation.Listener listener) {
         if (mHeaderScale) {
             // Scale the item back down
             startScaleDownReturnToStartAnimation(from, listener);
+        } else if (mSpringRelease) {
+            startHeaderSpring(from, mHeaderOriginalOffsetTop, listener);
         } else {
             mHeaderFrom = from;
             mAnimateToStartPosition.reset();
             mAnimateToStartPosition.setDuration(ANIMATE_TO_START_DURATION);
-            mAnimateToStartPosition.setInterpolator(mDecelerateInterpolator);
+            mAnimateToStartPosition.setInterpolator(Interpolators.DECELERATE);
             if (listener != null) {
                 mCircleView.setAnimationListener(listener);
             }
-            mCircleView.clearAnimation();
-            mCircleView.startAnimation(mAnimateToStartPosition);
+            startHeaderAnimation(mAnimateToStartPosition);
+        }
+    }
+
+    private void startHeaderSpring(int from, int to, FrameAnimation.Listener listener) {
+        float velocity = mHeaderReleaseVelocity;
+        mHeaderReleaseVelocity = 0;
+        // A spring interrupted by another one keeps its momentum
+        if (velocity == 0 && isAnimationRunning(mHeaderSpring)) {
+            velocity = mHeaderSpring.getVelocity();
+        }
+        mHeaderSpring.setSpring(from, to, velocity);
+        if (listener != null) {
+            mCircleView.setAnimationListener(listener);
+        }
+        startHeaderAnimation(mHeaderSpring);
+    }
+
+    private int getHeaderRefreshingOffsetTop() {
+        if (!mHeaderUsingCustomStart) {
+            return mHeaderSpinnerOffsetEnd - Math.abs(mHeaderOriginalOffsetTop);
+        } else {
+            return mHeaderSpinnerOffsetEnd;
         }
     }
 
-    private final Animation mAnimateToCorrectPosition = new Animation() {
+    private final FrameAnimation mAnimateToCorrectPosition = new FrameAnimation() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
+        public void applyTransformation(float interpolatedTime) {
             int targetTop = 0;
-            int endTarget = 0;
-            if (!mHeaderUsingCustomStart) {
-                endTarget = mHeaderSpinnerOffsetEnd - Math.abs(mHeaderOriginalOffsetTop);
-            } else {
-                endTarget = mHeaderSpinnerOffsetEnd;
-            }
+            int endTarget = getHeaderRefreshingOffsetTop();
             targetTop = (mHeaderFrom + (int) ((endTarget - mHeaderFrom) * interpolatedTime));
             int offset = targetTop - mCircleView.getTop();
             setHeaderTargetOffsetTopAndBottom(offset, false /* requires update */);
@@ -1590,59 +2582,67 @@ public class RefreshLayout extends ViewGroup {
         setHeaderTargetOffsetTopAndBottom(offset, false /* requires update */);
     }
 
-    private final Animation mAnimateToStartPosition = new Animation() {
+    private final FrameAnimation mAnimateToStartPosition = new FrameAnimation() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
+        public void applyTransformation(float interpolatedTime) {
             moveToStart(interpolatedTime);
         }
     };
 
     @SuppressLint("NewApi")
     private void startScaleDownReturnToStartAnimation(int from,
-            Animation.AnimationListener listener) {
+            FrameAnimation.Listener listener) {
         mHeaderFrom = from;
         if (isAlphaUsedForScale()) {
             mHeaderStartingScale = mProgress.getAlpha();
         } else {
             mHeaderStartingScale = ViewCompat.getScaleX(mCircleView);
         }
-        mHeaderScaleDownToStartAnimation = new Animation() {
-            @Override
-            public void applyTransformation(float interpolatedTime, Transformation t) {
-                float targetScale = (mHeaderStartingScale + (-mHeaderStartingScale * interpolatedTime));
-                setAnimationProgress(targetScale);
-                moveToStart(interpolatedTime);
-            }
-        };
         mHeaderScaleDownToStartAnimation.setDuration(SCALE_DOWN_DURATION);
         if (listener != null) {
             mCircleView.setAnimationListener(listener);
         }
-        mCircleView.clearAnimation();
-        mCircleView.startAnimation(mHeaderScaleDownToStartAnimation);
+        startHeaderAnimation(mHeaderScaleDownToStartAnimation);
     }
 
     void setHeaderTargetOffsetTopAndBottom(int offset, boolean requiresUpdate) {
-        mCircleView.bringToFront();
+        if (mCircleView == null) {
+            mHeaderCurrentTargetOffsetTop += offset;
+            return;
+        }
+        if (mHeaderBringToFront) {
+            mCircleView.bringToFront();
+        }
         ViewCompat.offsetTopAndBottom(mCircleView, offset);
         mHeaderCurrentTargetOffsetTop = mCircleView.getTop();
         if (requiresUpdate && android.os.Build.VERSION.SDK_INT < 11) {
-            invalidate();
+            mEngine.getInvalidationCoalescer().invalidate(this);
         }
     }
 
-    private void animateFooterOffsetToStartPosition(int from, AnimationListener listener) {
+    /**
+     * Start the animation on the circle view. The listener set to the
+     * circle view is notified.
+     */
+    private void startHeaderAnimation(FrameAnimation animation) {
+        // The circle view notifies legacy animations itself after they are drawn
+        animation.setAnimationListener(mEngine.isLegacy() ? null : mCircleView.mEngineListener);
+        mEngine.start(animation, mCircleView);
+    }
+
+    private void animateFooterOffsetToStartPosition(int from, FrameAnimation.Listener listener) {
         mFooterFrom = from;
         mAnimateFooterToStartPosition.reset();
         mAnimateFooterToStartPosition.setDuration(mMediumAnimationDuration);
         mAnimateFooterToStartPosition.setAnimationListener(listener);
-        mAnimateFooterToStartPosition.setInterpolator(mDecelerateInterpolator);
-        mTarget.startAnimation(mAnimateFooterToStartPosition);
+        mAnimateFooterToStartPosition.setInterpolator(Interpolators.DECELERATE);
+        mEngine.start(mAnimateFooterToStartPosition, mTarget);
     }
 
     private void updatePositionTimeout() {
-        removeCallbacks(mCancel);
-        postDelayed(mCancel, RETURN_TO_ORIGINAL_POSITION_TIMEOUT);
+        final FrameEngine.Scheduler scheduler = mEngine.getScheduler();
+        scheduler.removeCallbacks(mCancel);
+        scheduler.postDelayed(mCancel, RETURN_TO_ORIGINAL_POSITION_TIMEOUT);
     }
 
     private void onSecondaryPointerUp(MotionEvent ev) {
@@ -1690,6 +2690,91 @@ public class RefreshLayout extends ViewGroup {
         void onFooterRefresh();
     }
 
+    /**
+     * Notified when a header load is pre-warmed, see
+     * {@link RefreshLayout#setHeaderPrewarmEnabled(boolean)}.
+     */
+    public interface OnHeaderPrewarmListener {
+        /**
+         * Called when the drag crosses the trigger distance. Start fetching
+         * the data, {@link OnRefreshListener#onHeaderRefresh()} follows if
+         * the drag is released beyond it.
+         */
+        void onHeaderPrewarm();
+
+        /**
+         * Called when the drag ends without triggering the refresh. Drop
+         * the data fetched since {@link #onHeaderPrewarm()}.
+         */
+        void onHeaderPrewarmCancelled();
+    }
+
+    /**
+     * Receives performance metrics of a RefreshLayout. All methods are
+     * called on the main thread.
+     */
+    public interface OnMetricsListener {
+        /**
+         * Called when the refresh callback is called, with the time since
+         * the refresh was triggered by a released drag, a prefetch or
+         * {@link RefreshLayout#refreshHeader()}/{@link RefreshLayout#refreshFooter()}.
+         */
+        void onTriggerLatency(boolean header, long millis);
+
+        /**
+         * Called when refreshing stops, with the time since the refresh callback.
+         */
+        void onRefreshDuration(boolean header, long millis);
+
+        /**
+         * Called with the time spent moving the header for one drag event.
+         */
+        void onDragFrame(long nanos);
+
+        /**
+         * Called when frames are dropped in a row while the header spinner runs.
+         */
+        void onFramesDropped(int frames);
+
+        /**
+         * Called when a drag is released or cancelled before the trigger distance.
+         */
+        void onGestureCancelled(boolean header);
+    }
+
+    /**
+     * Loads the data of a refresh. Loads run on the executor set by
+     * {@link RefreshLayout#setRefreshExecutor(Executor)}, the returned
+     * results and failures are delivered on the main thread.
+     */
+    public interface RefreshSource {
+        /**
+         * Load the data of a header refresh. The thread is interrupted if
+         * the load is cancelled or timed out.
+         *
+         * @return A runnable to apply the data on the main thread, or {@code null}
+         */
+        @Nullable
+        Runnable loadHeader() throws Exception;
+
+        /**
+         * Load the data of a footer refresh. The thread is interrupted if
+         * the load is cancelled or timed out.
+         *
+         * @return A runnable to apply the data on the main thread, or {@code null}
+         */
+        @Nullable
+        Runnable loadFooter() throws Exception;
+
+        /**
+         * Called on the main thread if a load throws or times out.
+         *
+         * @param header true for a header load
+         * @param e the exception
+         */
+        void onRefreshFailed(boolean header, Exception e);
+    }
+
     /**
      * Classes that wish to override {@link RefreshLayout#canChildScrollUp()} method
      * and {@link RefreshLayout#canChildScrollDown()} method behavior should implement this interface.
@@ -1719,20 +2804,34 @@ public class RefreshLayout extends ViewGroup {
     }
 
     /**
-     * Simple AnimationListener to avoid having to implement unneeded methods in
-     * AnimationListeners.
+     * Animates the alpha of the progress spinner.
+     */
+    private class ProgressAlphaAnimation extends FrameAnimation {
+        int mStartingAlpha;
+        int mEndingAlpha;
+
+        @Override
+        public void applyTransformation(float interpolatedTime) {
+            mProgress.setAlpha(
+                    (int) (mStartingAlpha + ((mEndingAlpha - mStartingAlpha) * interpolatedTime)));
+        }
+    }
+
+    /**
+     * Simple FrameAnimation.Listener to avoid having to implement unneeded methods in
+     * listeners.
      */
-    private static class BaseAnimationListener implements AnimationListener {
+    private static class BaseAnimationListener implements FrameAnimation.Listener {
         @Override
-        public void onAnimationStart(Animation animation) {
+        public void onAnimationStart(FrameAnimation animation) {
         }
 
         @Override
-        public void onAnimationEnd(Animation animation) {
+        public void onAnimationEnd(FrameAnimation animation) {
         }
 
         @Override
-        public void onAnimationRepeat(Animation animation) {
+        public void onAnimationRepeat(FrameAnimation animation) {
         }
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RefreshLayout.OnMetricsListener} that records all metrics into
+ * {@link RefreshHistogram}s. One instance can be shared by the
+ * RefreshLayouts of a screen.
+ */
+public class RefreshMetrics implements RefreshLayout.OnMetricsListener {
+
+    private final RefreshHistogram mHeaderTriggerLatency =
+            new RefreshHistogram(RefreshHistogram.MILLIS_BOUNDS);
+    private final RefreshHistogram mFooterTriggerLatency =
+            new RefreshHistogram(RefreshHistogram.MILLIS_BOUNDS);
+    private final RefreshHistogram mHeaderRefreshDuration =
+            new RefreshHistogram(RefreshHistogram.MILLIS_BOUNDS);
+    private final RefreshHistogram mFooterRefreshDuration =
+            new RefreshHistogram(RefreshHistogram.MILLIS_BOUNDS);
+    private final RefreshHistogram mDragFrameMicros =
+            new RefreshHistogram(RefreshHistogram.MICROS_BOUNDS);
+    private final RefreshHistogram mDroppedFrames =
+            new RefreshHistogram(RefreshHistogram.COUNT_BOUNDS);
+    private final AtomicLong mHeaderCancelCount = new AtomicLong();
+    private final AtomicLong mFooterCancelCount = new AtomicLong();
+
+    @Override
+    public void onTriggerLatency(boolean header, long millis) {
+        (header ? mHeaderTriggerLatency : mFooterTriggerLatency).record(millis);
+    }
+
+    @Override
+    public void onRefreshDuration(boolean header, long millis) {
+        (header ? mHeaderRefreshDuration : mFooterRefreshDuration).record(millis);
+    }
+
+    @Override
+    public void onDragFrame(long nanos) {
+        mDragFrameMicros.record(nanos / 1000);
+    }
+
+    @Override
+    public void onFramesDropped(int frames) {
+        mDroppedFrames.record(frames);
+    }
+
+    @Override
+    public void onGestureCancelled(boolean header) {
+        (header ? mHeaderCancelCount : mFooterCancelCount).incrementAndGet();
+    }
+
+    /**
+     * @return Milliseconds from trigger to the refresh callback.
+     */
+    public RefreshHistogram getTriggerLatency(boolean header) {
+        return header ? mHeaderTriggerLatency : mFooterTriggerLatency;
+    }
+
+    /**
+     * @return Milliseconds from the refresh callback to the end of refreshing.
+     */
+    public RefreshHistogram getRefreshDuration(boolean header) {
+        return header ? mHeaderRefreshDuration : mFooterRefreshDuration;
+    }
+
+    /**
+     * @return Microseconds spent on each header drag frame.
+     */
+    public RefreshHistogram getDragFrameMicros() {
+        return mDragFrameMicros;
+    }
+
+    /**
+     * @return Frames dropped in a row while the spinner runs.
+     */
+    public RefreshHistogram getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    /**
+     * @return The number of drags released before the trigger distance.
+     */
+    public long getCancelCount(boolean header) {
+        return (header ? mHeaderCancelCount : mFooterCancelCount).get();
+    }
+
+    /**
+     * Remove all samples.
+     */
+    public void reset() {
+        mHeaderTriggerLatency.reset();
+        mFooterTriggerLatency.reset();
+        mHeaderRefreshDuration.reset();
+        mFooterRefreshDuration.reset();
+        mDragFrameMicros.reset();
+        mDroppedFrames.reset();
+        mHeaderCancelCount.set(0);
+        mFooterCancelCount.set(0);
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the loads of a {@link RefreshLayout.RefreshSource} on an executor.
+ * At most one header load and one footer load are in flight, further
+ * triggers are dropped. Results are applied on the main thread, and the
+ * refreshing state of the layout is cleared after them.
+ * <p>
+ * A header load can start speculatively before the refresh is triggered.
+ * Its result is held until {@link #load(boolean)} adopts it, or dropped
+ * by {@link #abortPrewarm()}.
+ * </p>
+ */
+final class RefreshPipeline {
+
+    static final long DEFAULT_TIMEOUT = 30000;
+
+    private static ExecutorService sDefaultExecutor;
+
+    private final RefreshLayout mLayout;
+    private final FrameEngine mEngine;
+    // Delivers adopted speculative results, timeouts go through the engine
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private RefreshLayout.RefreshSource mSource;
+    private Executor mExecutor;
+    private long mTimeout = DEFAULT_TIMEOUT;
+
+    private Load mHeaderLoad;
+    private Load mFooterLoad;
+
+    RefreshPipeline(RefreshLayout layout, FrameEngine engine) {
+        mLayout = layout;
+        mEngine = engine;
+    }
+
+    static synchronized Executor getDefaultExecutor() {
+        if (sDefaultExecutor == null) {
+            sDefaultExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    final Thread thread = new Thread(r, "RefreshLayout-load");
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return sDefaultExecutor;
+    }
+
+    /**
+     * Set the source. Loads of the old source are cancelled.
+     */
+    void setSource(RefreshLayout.RefreshSource source) {
+        cancelAll();
+        mSource = source;
+    }
+
+    boolean hasSource() {
+        return mSource != null;
+    }
+
+    void setExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * @param timeout The timeout of each load in milliseconds, 0 for none
+     */
+    void setTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalStateException("timeout < 0");
+        }
+        mTimeout = timeout;
+    }
+
+    boolean isLoading(boolean header) {
+        return (header ? mHeaderLoad : mFooterLoad) != null;
+    }
+
+    /**
+     * Start a load if there is a source and no load of the same kind is in
+     * flight. A speculative header load is adopted instead, its held result
+     * is delivered like a fresh one.
+     */
+    void load(boolean header) {
+        if (header && mHeaderLoad != null && mHeaderLoad.mSpeculative) {
+            commitPrewarm(mHeaderLoad);
+            return;
+        }
+        if (mSource == null || isLoading(header)) {
+            return;
+        }
+
+        final Load load = new Load(mSource, header);
+        if (header) {
+            mHeaderLoad = load;
+        } else {
+            mFooterLoad = load;
+        }
+        load.start(mExecutor != null ? mExecutor : getDefaultExecutor(), mEngine.getScheduler(),
+                mTimeout);
+    }
+
+    /**
+     * Start a speculative header load if there is a source and no header
+     * load is in flight.
+     */
+    void prewarm() {
+        if (mSource == null || isLoading(true)) {
+            return;
+        }
+        load(true);
+        mHeaderLoad.mSpeculative = true;
+    }
+
+    /**
+     * Cancel the speculative header load, if any, without notifying the source.
+     */
+    void abortPrewarm() {
+        if (mHeaderLoad != null && mHeaderLoad.mSpeculative) {
+            cancel(true);
+        }
+    }
+
+    private void commitPrewarm(final Load load) {
+        load.mSpeculative = false;
+        if (load.mHeld) {
+            // Deliver on a later message like any result, not inside the trigger
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    finish(load, load.mResult, load.mError);
+                }
+            });
+        }
+    }
+
+    /**
+     * Cancel the load without notifying the source.
+     */
+    void cancel(boolean header) {
+        final Load load = header ? mHeaderLoad : mFooterLoad;
+        if (load != null) {
+            release(load);
+            load.cancel();
+        }
+    }
+
+    void cancelAll() {
+        cancel(true);
+        cancel(false);
+    }
+
+    private void release(Load load) {
+        if (load == mHeaderLoad) {
+            mHeaderLoad = null;
+        } else if (load == mFooterLoad) {
+            mFooterLoad = null;
+        }
+    }
+
+    private void finish(Load load, Runnable result, Exception error) {
+        // Replaced, cancelled or timed out
+        if (load != mHeaderLoad && load != mFooterLoad) {
+            return;
+        }
+        if (load.mSpeculative) {
+            // Wait for the refresh to be triggered, the timeout is over
+            load.mHeld = true;
+            load.mResult = result;
+            load.mError = error;
+            return;
+        }
+        release(load);
+
+        try {
+            if (error != null) {
+                load.mSource.onRefreshFailed(load.mHeader, error);
+            } else if (result != null) {
+                result.run();
+            }
+        } finally {
+            if (load.mHeader) {
+                mLayout.setHeaderRefreshing(false);
+            } else {
+                mLayout.setFooterRefreshing(false);
+            }
+        }
+    }
+
+    private final class Load extends BackgroundLoad {
+        final RefreshLayout.RefreshSource mSource;
+        final boolean mHeader;
+        // Started before the refresh is triggered, set on the main thread
+        boolean mSpeculative;
+        // The result of a speculative load is held until it is adopted
+        boolean mHeld;
+        Runnable mResult;
+        Exception mError;
+
+        Load(RefreshLayout.RefreshSource source, boolean header) {
+            mSource = source;
+            mHeader = header;
+        }
+
+        @Override
+        public Runnable call() throws Exception {
+            return mHeader ? mSource.loadHeader() : mSource.loadFooter();
+        }
+
+        @Override
+        protected void onFinished(Runnable result, Exception error) {
+            finish(this, result, error);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.os.Build;
+import android.support.v4.os.TraceCompat;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+
+/**
+ * Systrace sections of the library. Callers must check {@link #sEnabled}
+ * before each call, so tracing costs a field read when it is off.
+ */
+final class RefreshTrace {
+    private RefreshTrace() {}
+
+    private static final String LOG_TAG = RefreshTrace.class.getSimpleName();
+
+    // Trace.TRACE_TAG_APP, hidden
+    private static final long TRACE_TAG_APP = 1L << 12;
+
+    /** Whether sections are emitted. */
+    static boolean sEnabled;
+
+    private static boolean sAsyncResolved;
+    private static Method sAsyncBegin;
+    private static Method sAsyncEnd;
+
+    static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    static void beginSection(String name) {
+        TraceCompat.beginSection(name);
+    }
+
+    static void endSection() {
+        TraceCompat.endSection();
+    }
+
+    /**
+     * Begin an async section. Sections with the same name need different cookies.
+     */
+    static void beginAsyncSection(String name, int cookie) {
+        invokeAsync(true, name, cookie);
+    }
+
+    static void endAsyncSection(String name, int cookie) {
+        invokeAsync(false, name, cookie);
+    }
+
+    private static void invokeAsync(boolean begin, String name, int cookie) {
+        resolveAsync();
+        final Method method = begin ? sAsyncBegin : sAsyncEnd;
+        if (method == null) {
+            return;
+        }
+        try {
+            if (Build.VERSION.SDK_INT >= 29) {
+                method.invoke(null, name, cookie);
+            } else {
+                method.invoke(null, TRACE_TAG_APP, name, cookie);
+            }
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "Can't trace async section", e);
+            sAsyncBegin = null;
+            sAsyncEnd = null;
+        }
+    }
+
+    // Trace.beginAsyncSection is public since API 29, Trace.asyncTraceBegin is hidden since API 18
+    private static void resolveAsync() {
+        if (sAsyncResolved) {
+            return;
+        }
+        sAsyncResolved = true;
+        if (Build.VERSION.SDK_INT < 18) {
+            return;
+        }
+        try {
+            final Class<?> trace = Class.forName("android.os.Trace");
+            if (Build.VERSION.SDK_INT >= 29) {
+                sAsyncBegin = trace.getMethod("beginAsyncSection", String.class, int.class);
+                sAsyncEnd = trace.getMethod("endAsyncSection", String.class, int.class);
+            } else {
+                sAsyncBegin = trace.getMethod("asyncTraceBegin",
+                        long.class, String.class, int.class);
+                sAsyncEnd = trace.getMethod("asyncTraceEnd",
+                        long.class, String.class, int.class);
+            }
+        } catch (Exception e) {
+            Log.w(LOG_TAG, "Async trace is not supported", e);
+            sAsyncBegin = null;
+            sAsyncEnd = null;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.graphics.Bitmap;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A small LRU cache of pre-rendered ring bitmaps for
+ * {@link MaterialProgressDrawable}. All bitmaps have the same size,
+ * bitmaps of evicted entries are reused for new entries. The bitmaps are
+ * alpha masks, the color is applied when they are drawn.
+ */
+final class RingBitmapCache {
+
+    /**
+     * The number of sweep steps in a full circle. Coarse enough that the
+     * sweeps of one spinning cycle fit in the cache.
+     */
+    static final int SWEEP_STEPS = 36;
+    /** The number of arrow scale steps from 0 to 1. */
+    static final int ARROW_SCALE_STEPS = 255;
+
+    private static final int DEFAULT_MAX_SIZE = 32;
+
+    private final LinkedHashMap<Long, Bitmap> mMap;
+    private final int mMaxSize;
+    private int mWidth;
+    private int mHeight;
+
+    private int mHitCount;
+    private int mMissCount;
+
+    RingBitmapCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    RingBitmapCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalStateException("maxSize <= 0");
+        }
+        mMaxSize = maxSize;
+        mMap = new LinkedHashMap<>(maxSize, 0.75f, true);
+    }
+
+    /**
+     * @param sweep The signed sweep in [-{@link #SWEEP_STEPS}..{@link #SWEEP_STEPS}]
+     * @param arrowScale The arrow scale in [0..{@link #ARROW_SCALE_STEPS}],
+     *        or a negative value if the arrow is hidden
+     * @return The key of the ring bitmap.
+     */
+    static long key(int sweep, int arrowScale) {
+        return ((long) (arrowScale + 1) << 16) | (sweep + SWEEP_STEPS);
+    }
+
+    /**
+     * Set the size of the bitmaps. All entries are dropped if it changes.
+     */
+    void setSize(int width, int height) {
+        if (mWidth != width || mHeight != height) {
+            clear();
+            mWidth = width;
+            mHeight = height;
+        }
+    }
+
+    /**
+     * @return The bitmap for the key, or {@code null} if it is not cached.
+     */
+    Bitmap get(long key) {
+        final Bitmap bitmap = mMap.get(key);
+        if (bitmap != null) {
+            mHitCount++;
+        } else {
+            mMissCount++;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Obtain a cleared bitmap for the key and put it into the cache.
+     * The least recently used entry might be evicted, its bitmap is reused.
+     */
+    Bitmap obtain(long key) {
+        Bitmap bitmap = null;
+        if (mMap.size() >= mMaxSize) {
+            final Iterator<Bitmap> iterator = mMap.values().iterator();
+            bitmap = iterator.next();
+            iterator.remove();
+            bitmap.eraseColor(0);
+        }
+        if (bitmap == null) {
+            bitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ALPHA_8);
+        }
+        mMap.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Drop all entries. The bitmaps are not recycled, a recorded display
+     * list might still draw them.
+     */
+    void clear() {
+        mMap.clear();
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    @VisibleForTesting
+    int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return The ratio of lookups found in the cache, in [0..1].
+     */
+    float getHitRate() {
+        final int total = mHitCount + mMissCount;
+        return total == 0 ? 0.0f : (float) mHitCount / total;
+    }
+}
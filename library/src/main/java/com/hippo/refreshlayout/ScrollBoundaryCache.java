@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * Caches whether the target of {@link RefreshLayout} can scroll up and
+ * down. It must be invalidated whenever the target might have scrolled
+ * or been laid out.
+ */
+final class ScrollBoundaryCache {
+
+    static final int UP = 0x1;
+    static final int DOWN = 0x2;
+
+    private boolean mEnabled = true;
+    // Bits of the cached directions
+    private int mValid;
+    // Bits of the directions the target can scroll to
+    private int mScrollable;
+
+    @VisibleForTesting
+    int mMissCount;
+
+    void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+        mValid = 0;
+    }
+
+    boolean has(int direction) {
+        return (mValid & direction) != 0;
+    }
+
+    boolean get(int direction) {
+        return (mScrollable & direction) != 0;
+    }
+
+    /**
+     * Store the direction. It is only kept valid if the cache is enabled,
+     * but {@link #get(int)} returns it until the next put.
+     */
+    void put(int direction, boolean scrollable) {
+        mMissCount++;
+        if (mEnabled) {
+            mValid |= direction;
+        }
+        if (scrollable) {
+            mScrollable |= direction;
+        } else {
+            mScrollable &= ~direction;
+        }
+    }
+
+    void invalidate() {
+        mValid = 0;
+    }
+}
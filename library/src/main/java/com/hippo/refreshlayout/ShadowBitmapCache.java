@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RadialGradient;
+import android.graphics.Shader;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process-wide LRU cache of the pre-rendered fill shadows of
+ * {@link CircleImageView}, shared by all {@link RefreshLayout}s.
+ * <p>
+ * Evicted bitmaps are not recycled, views might still hold them.
+ * </p>
+ */
+final class ShadowBitmapCache {
+    private ShadowBitmapCache() {}
+
+    static final int DEFAULT_MAX_BYTES = 512 * 1024;
+
+    private static final LinkedHashMap<Long, Bitmap> sMap = new LinkedHashMap<>(8, 0.75f, true);
+    private static int sMaxBytes = DEFAULT_MAX_BYTES;
+    private static int sBytes;
+
+    private static int sHitCount;
+    private static int sMissCount;
+
+    private static long key(int width, int height, int diameter, int shadowRadius) {
+        return ((long) (width & 0xffff) << 48) | ((long) (height & 0xffff) << 32)
+                | ((long) (diameter & 0xffff) << 16) | (shadowRadius & 0xffff);
+    }
+
+    /**
+     * @param width The width of the view
+     * @param height The height of the view
+     * @param diameter The diameter of the oval shape
+     * @param shadowRadius The shadow radius in pixels
+     * @param color The shadow color at the center
+     * @return The fill shadow, or {@code null} if the size is empty.
+     */
+    static synchronized Bitmap get(int width, int height, int diameter, int shadowRadius,
+            int color) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+
+        final long key = key(width, height, diameter, shadowRadius);
+        Bitmap bitmap = sMap.get(key);
+        if (bitmap != null) {
+            sHitCount++;
+            return bitmap;
+        }
+        sMissCount++;
+
+        bitmap = render(width, height, diameter, shadowRadius, color);
+        final int bytes = bitmap.getRowBytes() * bitmap.getHeight();
+        if (bytes <= sMaxBytes) {
+            sMap.put(key, bitmap);
+            sBytes += bytes;
+            trimToSize(sMaxBytes);
+        }
+        return bitmap;
+    }
+
+    private static Bitmap render(int width, int height, int diameter, int shadowRadius,
+            int color) {
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        final Paint paint = new Paint();
+        paint.setShader(new RadialGradient(diameter / 2, diameter / 2,
+                shadowRadius, new int[] { color, Color.TRANSPARENT },
+                null, Shader.TileMode.CLAMP));
+        new Canvas(bitmap).drawCircle(width / 2, height / 2, width / 2, paint);
+        return bitmap;
+    }
+
+    private static void trimToSize(int maxBytes) {
+        final Iterator<Map.Entry<Long, Bitmap>> iterator = sMap.entrySet().iterator();
+        while (sBytes > maxBytes && iterator.hasNext()) {
+            final Bitmap bitmap = iterator.next().getValue();
+            sBytes -= bitmap.getRowBytes() * bitmap.getHeight();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Set the memory cap of the cache in bytes. Entries are evicted
+     * if it is exceeded.
+     */
+    static synchronized void setMaxBytes(int maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalStateException("maxBytes < 0");
+        }
+        sMaxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    @VisibleForTesting
+    static synchronized void clear() {
+        sMap.clear();
+        sBytes = 0;
+    }
+
+    @VisibleForTesting
+    static synchronized int getBytes() {
+        return sBytes;
+    }
+
+    @VisibleForTesting
+    static synchronized int getHitCount() {
+        return sHitCount;
+    }
+
+    @VisibleForTesting
+    static synchronized int getMissCount() {
+        return sMissCount;
+    }
+}
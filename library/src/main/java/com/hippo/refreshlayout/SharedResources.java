@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.graphics.Paint;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Resources shared by all {@link RefreshLayout}s of the process.
+ * <p>
+ * Shared paints are only used on the main thread. Each user sets the color
+ * right before drawing and changes nothing else, so they never leak state
+ * between views. Interned color arrays must not be modified.
+ * </p>
+ */
+final class SharedResources {
+    private SharedResources() {}
+
+    private static final int MAX_COLOR_ARRAYS = 32;
+
+    private static Paint sFillPaint;
+    private static Paint sAntiAliasFillPaint;
+    private static Paint sBitmapPaint;
+
+    private static final LinkedHashMap<ColorKey, int[]> sColorArrays =
+            new LinkedHashMap<ColorKey, int[]>(8, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ColorKey, int[]> eldest) {
+            // Evicted arrays are still used by their views, they are just not shared anymore
+            return size() > MAX_COLOR_ARRAYS;
+        }
+    };
+
+    private static int sColorHitCount;
+
+    /**
+     * @return A fill paint without flags, only its color may be changed.
+     */
+    static Paint fillPaint() {
+        if (sFillPaint == null) {
+            sFillPaint = new Paint();
+        }
+        return sFillPaint;
+    }
+
+    /**
+     * @return An anti-aliased fill paint, only its color and alpha may be changed.
+     */
+    static Paint antiAliasFillPaint() {
+        if (sAntiAliasFillPaint == null) {
+            sAntiAliasFillPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            sAntiAliasFillPaint.setStyle(Paint.Style.FILL);
+        }
+        return sAntiAliasFillPaint;
+    }
+
+    /**
+     * @return A paint to draw filtered bitmaps, it must not be changed.
+     */
+    static Paint bitmapPaint() {
+        if (sBitmapPaint == null) {
+            sBitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        }
+        return sBitmapPaint;
+    }
+
+    /**
+     * Return an array with the same colors, shared with all other callers
+     * that passed equal colors.
+     *
+     * @param colors the colors, not kept
+     * @return The shared array, it must not be modified.
+     */
+    static synchronized int[] intern(@NonNull int[] colors) {
+        final ColorKey key = new ColorKey(colors);
+        int[] shared = sColorArrays.get(key);
+        if (shared != null) {
+            sColorHitCount++;
+            return shared;
+        }
+        shared = colors.clone();
+        sColorArrays.put(new ColorKey(shared), shared);
+        return shared;
+    }
+
+    @VisibleForTesting
+    static synchronized int getColorHitCount() {
+        return sColorHitCount;
+    }
+
+    private static final class ColorKey {
+        private final int[] mColors;
+        private final int mHash;
+
+        ColorKey(int[] colors) {
+            mColors = colors;
+            mHash = Arrays.hashCode(colors);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ColorKey && Arrays.equals(mColors, ((ColorKey) o).mColors);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHash;
+        }
+    }
+}
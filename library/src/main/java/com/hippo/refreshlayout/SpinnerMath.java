@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+/**
+ * Per-frame arithmetic of the header spinner, kept free of Android classes
+ * so it can be run on a plain JVM.
+ */
+final class SpinnerMath {
+    private SpinnerMath() {}
+
+    static final float FULL_ROTATION = 1080.0f;
+
+    /** The number of points in the progress "star". */
+    static final float NUM_POINTS = 5f;
+
+    /**
+     * The value in the linear interpolator for animating the drawable at which
+     * the color transition should start
+     */
+    static final float COLOR_START_DELAY_OFFSET = 0.75f;
+    static final float END_TRIM_START_DELAY_OFFSET = 0.5f;
+    static final float START_TRIM_DURATION_OFFSET = 0.5f;
+
+    static final float MAX_PROGRESS_ARC = .8f;
+
+    // Header drag
+
+    /**
+     * @return How far the drag is toward the trigger distance, in [0..1].
+     */
+    static float dragPercent(float overscrollTop, float totalDragDistance) {
+        return Math.min(1f, Math.abs(overscrollTop / totalDragDistance));
+    }
+
+    /**
+     * @return The drag percent remapped so that the arc starts growing after 40% of the drag.
+     */
+    static float adjustedPercent(float dragPercent) {
+        return (float) Math.max(dragPercent - .4, 0) * 5 / 3;
+    }
+
+    /**
+     * @return The tension applied once the drag goes beyond the trigger distance.
+     */
+    static float tensionPercent(float overscrollTop, float totalDragDistance, float slingshotDist) {
+        float extraOS = Math.abs(overscrollTop) - totalDragDistance;
+        float tensionSlingshotPercent = Math.max(0, Math.min(extraOS, slingshotDist * 2)
+                / slingshotDist);
+        float quarter = tensionSlingshotPercent / 4;
+        return (quarter - quarter * quarter) * 2f;
+    }
+
+    /**
+     * @return The spinner top offset for the given drag state.
+     */
+    static int targetOffsetTop(int originalOffsetTop, float slingshotDist, float dragPercent,
+            float tensionPercent) {
+        float extraMove = slingshotDist * tensionPercent * 2;
+        return originalOffsetTop + (int) ((slingshotDist * dragPercent) + extraMove);
+    }
+
+    /**
+     * @return The spinner top offset for the overscroll.
+     */
+    static int targetOffsetTop(float overscrollTop, int originalOffsetTop,
+            float totalDragDistance, float slingshotDist) {
+        return targetOffsetTop(originalOffsetTop, slingshotDist,
+                dragPercent(overscrollTop, totalDragDistance),
+                tensionPercent(overscrollTop, totalDragDistance, slingshotDist));
+    }
+
+    /**
+     * The inverse of {@link #targetOffsetTop(float, int, float, float)}.
+     *
+     * @return The smallest overscroll that moves the spinner to the offset.
+     */
+    static float overscrollForOffsetTop(int offsetTop, int originalOffsetTop,
+            float totalDragDistance, float slingshotDist) {
+        // The offset grows with the overscroll until the tension is saturated
+        float low = 0;
+        float high = totalDragDistance + slingshotDist * 2;
+        for (int i = 0; i < 16 && high - low > 0.5f; i++) {
+            final float mid = (low + high) / 2;
+            if (targetOffsetTop(mid, originalOffsetTop, totalDragDistance, slingshotDist)
+                    < offsetTop) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * @return The ring rotation for the given drag state, in [0..1] of a circle.
+     */
+    static float dragRotation(float adjustedPercent, float tensionPercent) {
+        return (-0.25f + .4f * adjustedPercent + tensionPercent * 2) * .5f;
+    }
+
+    // Ring animation
+
+    /**
+     * @return The arc, in the same unit as trim, that matches the stroke width.
+     */
+    static float minProgressArc(float strokeWidth, double centerRadius) {
+        return (float) Math.toRadians(strokeWidth / (2 * Math.PI * centerRadius));
+    }
+
+    /**
+     * @return The time scaled so that the start trim moves in the first half of the cycle.
+     */
+    static float startTrimTime(float interpolatedTime) {
+        return interpolatedTime / (1.0f - START_TRIM_DURATION_OFFSET);
+    }
+
+    /**
+     * @return The time scaled so that the end trim moves in the second half of the cycle.
+     */
+    static float endTrimTime(float interpolatedTime) {
+        return (interpolatedTime - START_TRIM_DURATION_OFFSET)
+                / (1.0f - START_TRIM_DURATION_OFFSET);
+    }
+
+    /**
+     * @param startingTrim The trim when the cycle started
+     * @param minProgressArc The value of {@link #minProgressArc(float, double)}
+     * @param curve The interpolated value of {@link #startTrimTime(float)} or
+     *              {@link #endTrimTime(float)}
+     * @return The trim for the current frame.
+     */
+    static float trim(float startingTrim, float minProgressArc, float curve) {
+        return startingTrim + ((MAX_PROGRESS_ARC - minProgressArc) * curve);
+    }
+
+    static float ringRotation(float startingRotation, float interpolatedTime) {
+        return startingRotation + (0.25f * interpolatedTime);
+    }
+
+    static float groupRotation(float interpolatedTime, float rotationCount) {
+        return ((FULL_ROTATION / NUM_POINTS) * interpolatedTime)
+                + (FULL_ROTATION * (rotationCount / NUM_POINTS));
+    }
+
+    static float finishStartTrim(float startingStartTrim, float startingEndTrim,
+            float minProgressArc, float interpolatedTime) {
+        return startingStartTrim
+                + (startingEndTrim - minProgressArc - startingStartTrim) * interpolatedTime;
+    }
+
+    static float finishRotation(float startingRotation, float interpolatedTime) {
+        float targetRotation = (float) (Math.floor(startingRotation / MAX_PROGRESS_ARC) + 1f);
+        return startingRotation + ((targetRotation - startingRotation) * interpolatedTime);
+    }
+
+    /**
+     * @return The fraction of the color transition, or a negative value if
+     *         the color should not change yet.
+     */
+    static float colorFraction(float interpolatedTime) {
+        if (interpolatedTime > COLOR_START_DELAY_OFFSET) {
+            // scale the interpolatedTime so that the full
+            // transformation from 0 - 1 takes place in the
+            // remaining time
+            return (interpolatedTime - COLOR_START_DELAY_OFFSET)
+                    / (1.0f - COLOR_START_DELAY_OFFSET);
+        } else {
+            return -1f;
+        }
+    }
+
+    // Adapted from ArgbEvaluator.java
+    static int evaluateColorChange(float fraction, int startValue, int endValue) {
+        int startA = (startValue >> 24) & 0xff;
+        int startR = (startValue >> 16) & 0xff;
+        int startG = (startValue >> 8) & 0xff;
+        int startB = startValue & 0xff;
+
+        int endA = (endValue >> 24) & 0xff;
+        int endR = (endValue >> 16) & 0xff;
+        int endG = (endValue >> 8) & 0xff;
+        int endB = endValue & 0xff;
+
+        return ((startA + (int) (fraction * (endA - startA))) << 24)
+                | ((startR + (int) (fraction * (endR - startR))) << 16)
+                | ((startG + (int) (fraction * (endG - startG))) << 8)
+                | ((startB + (int) (fraction * (endB - startB))));
+    }
+}
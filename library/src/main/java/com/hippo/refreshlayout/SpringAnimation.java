@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+/**
+ * Moves a value to a target like a critically damped spring, starting
+ * with a velocity. The position is evaluated in closed form at the time
+ * of each frame, so frame drops don't change the path. The duration is
+ * the time the spring needs to settle.
+ */
+abstract class SpringAnimation extends FrameAnimation {
+
+    // Angular frequency in radians per millisecond, settles 100 px in about 300 ms
+    private static final float OMEGA = 0.025f;
+    // The spring is settled once it is closer than it, in pixels
+    private static final float REST_DISTANCE = 0.5f;
+    private static final long MAX_DURATION = 1000;
+    private static final int NEWTON_STEPS = 3;
+
+    private float mTarget;
+    // Start position relative to the target
+    private float mStart;
+    // Pixels per millisecond
+    private float mStartVelocity;
+    private float mElapsed;
+
+    SpringAnimation() {
+        setInterpolator(Interpolators.LINEAR);
+    }
+
+    /**
+     * Apply the position of the spring.
+     *
+     * @param position The position
+     * @param fraction The elapsed time in [0..1] of the duration
+     */
+    protected abstract void applyPosition(float position, float fraction);
+
+    /**
+     * Set the start state and the target, and compute the duration.
+     * Call it before starting the animation.
+     *
+     * @param velocity The start velocity in pixels per millisecond
+     */
+    void setSpring(float from, float to, float velocity) {
+        mTarget = to;
+        mStart = from - to;
+        mStartVelocity = velocity;
+        mElapsed = 0;
+        setDuration(settleTime(mStart, velocity));
+    }
+
+    /**
+     * @return The velocity at the last applied frame in pixels per millisecond.
+     */
+    float getVelocity() {
+        return velocity(mStart, mStartVelocity, mElapsed);
+    }
+
+    @Override
+    protected void applyTransformation(float interpolatedTime) {
+        mElapsed = interpolatedTime * getDuration();
+        final float position = interpolatedTime >= 1.0f
+                ? mTarget : mTarget + displacement(mStart, mStartVelocity, mElapsed);
+        applyPosition(position, interpolatedTime);
+    }
+
+    static float displacement(float start, float velocity, float time) {
+        return (float) ((start + (velocity + OMEGA * start) * time) * Math.exp(-OMEGA * time));
+    }
+
+    static float velocity(float start, float velocity, float time) {
+        return (float) ((velocity - OMEGA * (velocity + OMEGA * start) * time)
+                * Math.exp(-OMEGA * time));
+    }
+
+    private static long settleTime(float start, float velocity) {
+        // The displacement is (A + Bt)e^(-wt) and the velocity is (v - wBt)e^(-wt),
+        // with A the start and B = v + wA. Settle both envelopes.
+        final double b = Math.abs(velocity + OMEGA * start);
+        final double time = Math.max(envelopeTime(Math.abs(start), b, REST_DISTANCE),
+                envelopeTime(Math.abs(velocity), OMEGA * b, REST_DISTANCE / 16));
+        return Math.min(MAX_DURATION, (long) Math.ceil(time));
+    }
+
+    /**
+     * @return A time after which {@code (p + qt)e^(-wt)} stays below r.
+     */
+    private static double envelopeTime(double p, double q, double r) {
+        // As te^(-wt/2) <= 2/(ew), the envelope is below (p + 2q/(ew))e^(-wt/2)
+        final double bound = p + 2 * q / (Math.E * OMEGA);
+        if (bound <= r) {
+            return 0;
+        }
+        double time = 2 / OMEGA * Math.log(bound / r);
+        // ln(p + qt) - wt - ln(r) is concave, Newton steps from the right
+        // stay after its last root
+        for (int i = 0; i < NEWTON_STEPS; i++) {
+            final double slope = q / (p + q * time) - OMEGA;
+            if (slope >= 0) {
+                break;
+            }
+            time -= (Math.log(p + q * time) - OMEGA * time - Math.log(r)) / slope;
+        }
+        return Math.max(0, time);
+    }
+}
@@ -22,10 +22,8 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Region;
 import android.os.Build;
-import android.support.v4.view.ViewCompat;
-import android.support.v4.view.animation.FastOutSlowInInterpolator;
+import android.support.annotation.VisibleForTesting;
 import android.view.View;
-import android.view.animation.AnimationUtils;
 import android.view.animation.Interpolator;
 
 
@@ -54,24 +52,37 @@ final class SwipeProgressBar {
     private static final int FINISH_ANIMATION_DURATION_MS = 1000;
 
     // Interpolator for varying the speed of the animation.
-    private static final Interpolator INTERPOLATOR = new FastOutSlowInInterpolator();
+    private static final Interpolator INTERPOLATOR = Interpolators.FAST_OUT_SLOW_IN;
 
-    private final Paint mPaint = new Paint();
+    // Shared by all bars, the color is set before each draw
+    private final Paint mPaint = SharedResources.fillPaint();
     private final RectF mClipRect = new RectF();
+    // The right clip of the finish animation if clipRect(Region.Op.DIFFERENCE) is not supported
+    private final RectF mClipRect2 = new RectF();
     private float mTriggerPercentage;
     private long mStartTime;
     private long mFinishTime;
     private boolean mRunning;
+    // Whether the finish animation clips out the cleared area, or draws each
+    // shape to the left and the right of it
+    @VisibleForTesting
+    boolean mClipDifference = SUPPORT_CLIP_RECT_DIFFERENCE;
 
     // Colors used when rendering the animation,
     private int[] mColors;
+    // Fill color of each phase after the first iteration
+    private int[] mPhaseFillColors;
+    // Color of each circle, there is one more circle than colors
+    private int[] mRingColors;
     private int mAnimationDuration;
     private View mParent;
+    private final FrameEngine mEngine;
 
     private Rect mBounds = new Rect();
 
-    SwipeProgressBar(View parent) {
+    SwipeProgressBar(View parent, FrameEngine engine) {
         mParent = parent;
+        mEngine = engine;
         setColorScheme(COLOR1, COLOR2, COLOR3, COLOR4);
     }
 
@@ -86,8 +97,21 @@ final class SwipeProgressBar {
         if (colors == null || colors.length <= 0) {
             throw new IllegalStateException("colors == null || colors.length <= 0");
         }
-        mColors = colors;
-        mAnimationDuration = colors.length * ANIMATION_DURATION_MS_PER_COLOR;
+        final int count = colors.length;
+        mColors = SharedResources.intern(colors);
+        mAnimationDuration = count * ANIMATION_DURATION_MS_PER_COLOR;
+        final int[] phaseFillColors = new int[count];
+        final int[] ringColors = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            phaseFillColors[i] = colors[ProgressBarMath.fillColorIndex(1, i, count)];
+        }
+        for (int i = 0; i <= count; i++) {
+            ringColors[i] = colors[i % count];
+        }
+        // Bars with the same colors share the schedule
+        mPhaseFillColors = SharedResources.intern(phaseFillColors);
+        mRingColors = SharedResources.intern(ringColors);
+        mEngine.getInvalidationCoalescer().invalidate(mParent, mBounds);
     }
 
     /**
@@ -96,10 +120,12 @@ final class SwipeProgressBar {
      * is shown.
      */
     void setTriggerPercentage(float triggerPercentage) {
-        mTriggerPercentage = triggerPercentage;
         mStartTime = 0;
-        ViewCompat.postInvalidateOnAnimation(
-                mParent, mBounds.left, mBounds.top, mBounds.right, mBounds.bottom);
+        if (mTriggerPercentage == triggerPercentage) {
+            return;
+        }
+        mTriggerPercentage = triggerPercentage;
+        mEngine.getInvalidationCoalescer().invalidate(mParent, mBounds);
     }
 
     /**
@@ -108,9 +134,9 @@ final class SwipeProgressBar {
     void start() {
         if (!mRunning) {
             mTriggerPercentage = 0;
-            mStartTime = AnimationUtils.currentAnimationTimeMillis();
+            mStartTime = mEngine.getClock().currentTimeMillis();
             mRunning = true;
-            mParent.postInvalidate();
+            mEngine.getInvalidationCoalescer().invalidate(mParent, mBounds);
         }
     }
 
@@ -120,9 +146,9 @@ final class SwipeProgressBar {
     void stop() {
         if (mRunning) {
             mTriggerPercentage = 0;
-            mFinishTime = AnimationUtils.currentAnimationTimeMillis();
+            mFinishTime = mEngine.getClock().currentTimeMillis();
             mRunning = false;
-            mParent.postInvalidate();
+            mEngine.getInvalidationCoalescer().invalidate(mParent, mBounds);
         }
     }
 
@@ -134,134 +160,130 @@ final class SwipeProgressBar {
     }
 
     void draw(Canvas canvas) {
-        // API < 18 do not support clipRect(Region.Op.DIFFERENCE).
-        // So draw twice for finish animation
-        if (draw(canvas, true)) {
-            draw(canvas, false);
+        final boolean trace = RefreshTrace.sEnabled;
+        if (trace) {
+            RefreshTrace.beginSection("SwipeProgressBar#draw");
         }
-    }
-
-    private boolean draw(Canvas canvas, boolean first) {
-        Rect bounds = mBounds;
-        final int width = bounds.width();
-        final int cx = bounds.centerX();
-        final int cy = bounds.centerY();
-        final int colors = mColors.length;
-        boolean drawTriggerWhileFinishing = false;
-        boolean drawAgain = false;
-        int restoreCount = canvas.save();
-        canvas.clipRect(bounds);
+        try {
+            Rect bounds = mBounds;
+            final int width = bounds.width();
+            final int cx = bounds.centerX();
+            final int cy = bounds.centerY();
+            final int colors = mColors.length;
+            boolean drawTriggerWhileFinishing = false;
+            boolean split = false;
+            int restoreCount = canvas.save();
+            canvas.clipRect(bounds);
 
-        if (mRunning || (mFinishTime > 0)) {
-            long now = AnimationUtils.currentAnimationTimeMillis();
-            long elapsed = (now - mStartTime) % mAnimationDuration;
-            long iterations = (now - mStartTime) / ANIMATION_DURATION_MS_PER_COLOR;
-            float rawProgress = (elapsed / (mAnimationDuration / (float) colors));
+            if (mRunning || (mFinishTime > 0)) {
+                long now = mEngine.getClock().currentTimeMillis();
+                long elapsed = (now - mStartTime) % mAnimationDuration;
+                long iterations = (now - mStartTime) / ANIMATION_DURATION_MS_PER_COLOR;
+                float rawProgress = ProgressBarMath.rawProgress(elapsed, mAnimationDuration, colors);
+                float clearRadius = 0;
 
-            // If we're not running anymore, that means we're running through
-            // the finish animation.
-            if (!mRunning) {
-                // If the finish animation is done, don't draw anything, and
-                // don't repost.
-                if ((now - mFinishTime) >= FINISH_ANIMATION_DURATION_MS) {
-                    mFinishTime = 0;
-                    return false;
-                }
+                // If we're not running anymore, that means we're running through
+                // the finish animation.
+                if (!mRunning) {
+                    // If the finish animation is done, don't draw anything, and
+                    // don't repost.
+                    if ((now - mFinishTime) >= FINISH_ANIMATION_DURATION_MS) {
+                        mFinishTime = 0;
+                        canvas.restoreToCount(restoreCount);
+                        return;
+                    }
 
-                // Otherwise, use a 0 opacity alpha layer to clear the animation
-                // from the inside out. This layer will prevent the circles from
-                // drawing within its bounds.
-                long finishElapsed = (now - mFinishTime) % FINISH_ANIMATION_DURATION_MS;
-                float finishProgress = (finishElapsed / (FINISH_ANIMATION_DURATION_MS / 100f));
-                float pct = (finishProgress / 100f);
-                // Radius of the circle is half of the screen.
-                float clearRadius = width / 2 * INTERPOLATOR.getInterpolation(pct);
-                if (SUPPORT_CLIP_RECT_DIFFERENCE) {
-                    mClipRect.set(cx - clearRadius, bounds.top, cx + clearRadius, bounds.bottom);
-                    canvas.clipRect(mClipRect, Region.Op.DIFFERENCE);
-                } else {
-                    if (first) {
-                        // First time left
-                        drawAgain = true;
-                        mClipRect.set(bounds.left, bounds.top, cx - clearRadius, bounds.bottom);
+                    // Otherwise, use a 0 opacity alpha layer to clear the animation
+                    // from the inside out. This layer will prevent the circles from
+                    // drawing within its bounds.
+                    float pct = ProgressBarMath.finishPercent(now - mFinishTime,
+                            FINISH_ANIMATION_DURATION_MS);
+                    // Radius of the circle is half of the screen.
+                    clearRadius = width / 2 * INTERPOLATOR.getInterpolation(pct);
+                    if (mClipDifference) {
+                        mClipRect.set(cx - clearRadius, bounds.top, cx + clearRadius, bounds.bottom);
+                        canvas.clipRect(mClipRect, Region.Op.DIFFERENCE);
                     } else {
-                        // Second time right
-                        mClipRect.set(cx + clearRadius, bounds.top, bounds.right, bounds.bottom);
+                        // API < 18 do not support clipRect(Region.Op.DIFFERENCE).
+                        // So draw each shape clipped to the left and the right
+                        // of the cleared area.
+                        split = true;
+                        mClipRect.set(bounds.left, bounds.top, cx - clearRadius, bounds.bottom);
+                        mClipRect2.set(cx + clearRadius, bounds.top, bounds.right, bounds.bottom);
                     }
-                    canvas.clipRect(mClipRect);
+                    // Only draw the trigger if there is a space in the center of
+                    // this refreshing view that needs to be filled in by the
+                    // trigger. If the progress view is just still animating, let it
+                    // continue animating.
+                    drawTriggerWhileFinishing = true;
                 }
-                // Only draw the trigger if there is a space in the center of
-                // this refreshing view that needs to be filled in by the
-                // trigger. If the progress view is just still animating, let it
-                // continue animating.
-                drawTriggerWhileFinishing = true;
-            }
 
-            // First fill in with the last color that would have finished drawing.
-            if (iterations == 0) {
-                canvas.drawColor(mColors[0]);
-            } else {
-                int index = colors - 1;
-                float left = 0.0f;
-                float right = 1.0f;
-                for (int i = 0; i < colors; ++i) {
-                    if ((rawProgress >= left && rawProgress < right) || i == colors - 1) {
-                        canvas.drawColor(mColors[index]);
-                        break;
-                    }
-                    index = (index + 1) % colors;
-                    left += 1.0f;
-                    right += 1.0f;
+                // First fill in with the last color that would have finished drawing.
+                final int phase = ProgressBarMath.phase(rawProgress, colors);
+                int fillColor = iterations == 0 ? mColors[0] : mPhaseFillColors[phase];
+                if (split) {
+                    drawColorSplit(canvas, fillColor);
+                } else {
+                    canvas.drawColor(fillColor);
                 }
-            }
 
-            // Then draw up to 4 overlapping concentric circles of varying radii, based on how far
-            // along we are in the cycle.
-            // progress 0-50 draw mColor2
-            // progress 25-75 draw mColor3
-            // progress 50-100 draw mColor4
-            // progress 75 (wrap to 25) draw mColor1
-            if (colors > 1) {
-                if ((rawProgress >= 0.0f && rawProgress <= 1.0f)) {
-                    float pct = (rawProgress + 1.0f) / 2;
-                    drawCircle(canvas, cx, cy, mColors[0], pct);
-                }
-                float left = 0.0f;
-                float right = 2.0f;
-                for (int i = 1; i < colors; ++i) {
-                    if (rawProgress >= left && rawProgress <= right) {
-                        float pct = (rawProgress - i + 1.0f) / 2;
-                        drawCircle(canvas, cx, cy, mColors[i], pct);
+                // Then draw up to 4 overlapping concentric circles of varying radii, based on how far
+                // along we are in the cycle.
+                // progress 0-50 draw mColor2
+                // progress 25-75 draw mColor3
+                // progress 50-100 draw mColor4
+                // progress 75 (wrap to 25) draw mColor1
+                if (colors > 1 && phase >= 0) {
+                    final int first = phase > 0 && rawProgress == phase ? phase - 1 : phase;
+                    for (int ring = first; ring <= phase + 1; ++ring) {
+                        float pct = ProgressBarMath.ringPercent(rawProgress, ring);
+                        float radiusScale = INTERPOLATOR.getInterpolation(pct);
+                        if (split) {
+                            drawCircleSplit(canvas, cx, cy, mRingColors[ring], radiusScale,
+                                    clearRadius);
+                        } else {
+                            drawCircle(canvas, cx, cy, mRingColors[ring], radiusScale);
+                        }
                     }
-                    left += 1.0f;
-                    right += 1.0f;
                 }
-                if ((rawProgress >= colors - 1.0f && rawProgress <= colors)) {
-                    float pct = (rawProgress - colors + 1.0f) / 2;
-                    drawCircle(canvas, cx, cy, mColors[0], pct);
+                if (mTriggerPercentage > 0 && drawTriggerWhileFinishing) {
+                    // There is some portion of trigger to draw. Restore the canvas,
+                    // then draw the trigger. Otherwise, the trigger does not appear
+                    // until after the bar has finished animating and appears to
+                    // just jump in at a larger width than expected.
+                    canvas.restoreToCount(restoreCount);
+                    restoreCount = canvas.save();
+                    canvas.clipRect(bounds);
+                    drawTrigger(canvas, cx, cy);
+                }
+                // Keep running until we finish out the last cycle.
+                mEngine.getInvalidationCoalescer().invalidate(mParent, bounds);
+            } else {
+                // Otherwise if we're in the middle of a trigger, draw that.
+                if (mTriggerPercentage > 0 && mTriggerPercentage <= 1.0) {
+                    drawTrigger(canvas, cx, cy);
                 }
             }
-            if (mTriggerPercentage > 0 && drawTriggerWhileFinishing) {
-                // There is some portion of trigger to draw. Restore the canvas,
-                // then draw the trigger. Otherwise, the trigger does not appear
-                // until after the bar has finished animating and appears to
-                // just jump in at a larger width than expected.
-                canvas.restoreToCount(restoreCount);
-                restoreCount = canvas.save();
-                canvas.clipRect(bounds);
-                drawTrigger(canvas, cx, cy);
-            }
-            // Keep running until we finish out the last cycle.
-            ViewCompat.postInvalidateOnAnimation(
-                    mParent, bounds.left, bounds.top, bounds.right, bounds.bottom);
-        } else {
-            // Otherwise if we're in the middle of a trigger, draw that.
-            if (mTriggerPercentage > 0 && mTriggerPercentage <= 1.0) {
-                drawTrigger(canvas, cx, cy);
+            canvas.restoreToCount(restoreCount);
+        } finally {
+            if (trace) {
+                RefreshTrace.endSection();
             }
         }
-        canvas.restoreToCount(restoreCount);
-        return drawAgain;
+    }
+
+    /**
+     * Fills the left and the right of the cleared area with the color.
+     */
+    private void drawColorSplit(Canvas canvas, int color) {
+        canvas.save();
+        canvas.clipRect(mClipRect);
+        canvas.drawColor(color);
+        canvas.restore();
+        canvas.save();
+        canvas.clipRect(mClipRect2);
+        canvas.drawColor(color);
+        canvas.restore();
     }
 
     private void drawTrigger(Canvas canvas, int cx, int cy) {
@@ -276,18 +298,37 @@ final class SwipeProgressBar {
      * @param cx the center x coordinate
      * @param cy the center y coordinate
      * @param color the color to draw
-     * @param pct the percentage of the view that the circle should cover
+     * @param radiusScale the interpolated percentage of the view that the circle should cover
      */
-    private void drawCircle(Canvas canvas, float cx, float cy, int color, float pct) {
+    private void drawCircle(Canvas canvas, float cx, float cy, int color, float radiusScale) {
         mPaint.setColor(color);
         canvas.save();
         canvas.translate(cx, cy);
-        float radiusScale = INTERPOLATOR.getInterpolation(pct);
         canvas.scale(radiusScale, radiusScale);
         canvas.drawCircle(0, 0, cx, mPaint);
         canvas.restore();
     }
 
+    /**
+     * Draws a circle centered in the view to the left and the right of the
+     * cleared area. Circles inside the cleared area are skipped.
+     */
+    private void drawCircleSplit(Canvas canvas, float cx, float cy, int color, float radiusScale,
+            float clearRadius) {
+        // One pixel of slack for rounding of the clip edges
+        if (cx * radiusScale + 1 < clearRadius) {
+            return;
+        }
+        canvas.save();
+        canvas.clipRect(mClipRect);
+        drawCircle(canvas, cx, cy, color, radiusScale);
+        canvas.restore();
+        canvas.save();
+        canvas.clipRect(mClipRect2);
+        drawCircle(canvas, cx, cy, color, radiusScale);
+        canvas.restore();
+    }
+
     /**
      * Set the drawing bounds of this SwipeProgressBar.
      */
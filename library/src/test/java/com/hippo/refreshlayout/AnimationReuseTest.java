@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class AnimationReuseTest {
+
+    private GestureHarness mHarness;
+    // Every animation seen running in the engine at a frame
+    private final Set<FrameAnimation> mRunning =
+            Collections.newSetFromMap(new IdentityHashMap<FrameAnimation, Boolean>());
+    private boolean mRecording;
+
+    // Samples the running animations at each frame, from the test side
+    private final Runnable mRecorder = new Runnable() {
+        @Override
+        public void run() {
+            mRunning.addAll(runningAnimations(mHarness.layout.getFrameEngine()));
+            if (mRecording) {
+                mHarness.clock.postFrameCallback(this);
+            }
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mHarness = new GestureHarness();
+    }
+
+    @After
+    public void tearDown() {
+        mRecording = false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<FrameAnimation> runningAnimations(FrameEngine engine) {
+        try {
+            final Field field = FrameEngine.class.getDeclaredField("mAnimations");
+            field.setAccessible(true);
+            return (List<FrameAnimation>) field.get(engine);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The animations held in fields of the object
+    private static Set<FrameAnimation> animationFields(Object owner) {
+        final Set<FrameAnimation> animations =
+                Collections.newSetFromMap(new IdentityHashMap<FrameAnimation, Boolean>());
+        try {
+            for (Class<?> c = owner.getClass(); c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (FrameAnimation.class.isAssignableFrom(field.getType())) {
+                        field.setAccessible(true);
+                        final Object animation = field.get(owner);
+                        if (animation != null) {
+                            animations.add((FrameAnimation) animation);
+                        }
+                    }
+                }
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return animations;
+    }
+
+    private Set<FrameAnimation> allAnimationFields() {
+        final Set<FrameAnimation> animations = animationFields(mHarness.layout);
+        animations.addAll(animationFields(mHarness.layout.mProgress));
+        return animations;
+    }
+
+    // Down past the trigger, back above it and down again, so the progress
+    // alpha animates both ways several times
+    private static float[] flickingPull() {
+        final float[] down = GestureHarness.drag(100, 700, 100);
+        final float[] up = GestureHarness.drag(700, 200, 100);
+        final float[] ys = new float[down.length * 2 + up.length];
+        System.arraycopy(down, 0, ys, 0, down.length);
+        System.arraycopy(up, 0, ys, down.length, up.length);
+        System.arraycopy(GestureHarness.drag(200, 700, 100), 0, ys, down.length + up.length,
+                down.length);
+        return ys;
+    }
+
+    private void refreshCycle() {
+        mHarness.touch(flickingPull());
+        mHarness.advance(1000);
+        assertTrue(mHarness.layout.isHeaderRefreshing());
+        mHarness.layout.setHeaderRefreshing(false);
+        mHarness.advance(1000);
+        assertFalse(mHarness.layout.isHeaderRefreshing());
+    }
+
+    private void startRecording() {
+        mRecording = true;
+        mHarness.clock.postFrameCallback(mRecorder);
+    }
+
+    private void assertReused(Set<FrameAnimation> fields) {
+        mRecording = false;
+        // Each running animation is one of the fields, and the fields are not replaced
+        assertFalse(mRunning.isEmpty());
+        for (FrameAnimation animation : mRunning) {
+            assertTrue(animation.getClass().getName(), fields.contains(animation));
+        }
+        assertEquals(fields, allAnimationFields());
+    }
+
+    @Test
+    public void refreshCycleCreatesNoAnimation() {
+        // Warm up, the header and its animations are created lazily
+        refreshCycle();
+
+        final Set<FrameAnimation> fields = allAnimationFields();
+        startRecording();
+        refreshCycle();
+        assertReused(fields);
+    }
+
+    @Test
+    public void cancelledPullCreatesNoAnimation() {
+        mHarness.touch(GestureHarness.drag(100, 150, 20));
+        mHarness.advance(1000);
+
+        final Set<FrameAnimation> fields = allAnimationFields();
+        startRecording();
+        // Released below the trigger, the spinner returns to start
+        mHarness.touch(GestureHarness.drag(100, 150, 20));
+        mHarness.advance(1000);
+        assertReused(fields);
+    }
+}
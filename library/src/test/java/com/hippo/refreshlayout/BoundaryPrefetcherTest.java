@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.support.v4.widget.NestedScrollView;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ScrollView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class BoundaryPrefetcherTest {
+
+    private static final int CONTENT_HEIGHT = 3000;
+
+    private ManualFrameClock mClock;
+    private FrameEngine mEngine;
+    private NestedScrollView mScrollView;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualFrameClock(1000);
+        mScrollView = new NestedScrollView(RuntimeEnvironment.application);
+        mEngine = new FrameEngine(mScrollView);
+        mEngine.setClock(mClock);
+        mEngine.setScheduler(mClock);
+        final View content = new View(RuntimeEnvironment.application);
+        mScrollView.addView(content, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, CONTENT_HEIGHT));
+        mScrollView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        mScrollView.layout(0, 0, 480, 800);
+    }
+
+    @Test
+    public void scrollContainerHasNoItems() {
+        final BoundaryPrefetcher prefetcher = new BoundaryPrefetcher(mEngine, false);
+        prefetcher.setLead(BoundaryPrefetcher.ITEMS, 3);
+
+        assertEquals(CONTENT_HEIGHT - 800, BoundaryPrefetcher.remaining(mScrollView));
+        // The content child is no item, it would count for the whole content
+        assertFalse(prefetcher.onScroll(mScrollView));
+
+        mScrollView.scrollTo(0, CONTENT_HEIGHT - 800 - 3);
+        mClock.advance(ManualFrameClock.FRAME_INTERVAL);
+        assertTrue(prefetcher.onScroll(mScrollView));
+    }
+
+    @Test
+    public void headWatchesTheTop() {
+        final BoundaryPrefetcher prefetcher = new BoundaryPrefetcher(mEngine, true);
+        prefetcher.setLead(BoundaryPrefetcher.PIXELS, 100);
+        mScrollView.scrollTo(0, 1000);
+        assertFalse(prefetcher.onScroll(mScrollView));
+
+        mScrollView.scrollTo(0, 100);
+        mClock.advance(ManualFrameClock.FRAME_INTERVAL);
+        assertTrue(prefetcher.onScroll(mScrollView));
+    }
+
+    @Test
+    public void scrollViewDistances() {
+        final ScrollView scrollView = new ScrollView(RuntimeEnvironment.application);
+        scrollView.setPadding(0, 0, 0, 20);
+        scrollView.addView(new View(RuntimeEnvironment.application),
+                new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, CONTENT_HEIGHT));
+        scrollView.measure(View.MeasureSpec.makeMeasureSpec(480, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(800, View.MeasureSpec.EXACTLY));
+        scrollView.layout(0, 0, 480, 800);
+
+        assertEquals(CONTENT_HEIGHT - 780, BoundaryPrefetcher.remaining(scrollView));
+        assertEquals(0, BoundaryPrefetcher.remainingToTop(scrollView));
+
+        scrollView.scrollTo(0, 1000);
+        assertEquals(CONTENT_HEIGHT - 780 - 1000, BoundaryPrefetcher.remaining(scrollView));
+        assertEquals(1000, BoundaryPrefetcher.remainingToTop(scrollView));
+
+        // A lead in items is taken in pixels, the content child is no item
+        final BoundaryPrefetcher prefetcher = new BoundaryPrefetcher(mEngine, false);
+        prefetcher.setLead(BoundaryPrefetcher.ITEMS, 3);
+        assertFalse(prefetcher.onScroll(scrollView));
+        scrollView.scrollTo(0, CONTENT_HEIGHT - 780 - 3);
+        mClock.advance(ManualFrameClock.FRAME_INTERVAL);
+        assertTrue(prefetcher.onScroll(scrollView));
+    }
+
+    // Scroll down by the distance in the next frame, then take a sample
+    private boolean scrollFrame(BoundaryPrefetcher prefetcher, int dy) {
+        mScrollView.scrollTo(0, mScrollView.getScrollY() + dy);
+        mClock.advance(ManualFrameClock.FRAME_INTERVAL);
+        return prefetcher.onScroll(mScrollView);
+    }
+
+    @Test
+    public void flingFiresEarly() {
+        final BoundaryPrefetcher prefetcher = new BoundaryPrefetcher(mEngine, false);
+        prefetcher.setLead(BoundaryPrefetcher.MILLIS, 100);
+        assertFalse(prefetcher.onScroll(mScrollView));
+
+        int frames = 0;
+        while (!scrollFrame(prefetcher, 200)) {
+            assertTrue(++frames < 20);
+        }
+        // More than a screen ahead, about 100 ms away at 12.5 px/ms
+        final int remaining = BoundaryPrefetcher.remaining(mScrollView);
+        assertTrue("remaining " + remaining, remaining > 800);
+    }
+
+    @Test
+    public void slowScrollDoesNotFire() {
+        final BoundaryPrefetcher prefetcher = new BoundaryPrefetcher(mEngine, false);
+        prefetcher.setLead(BoundaryPrefetcher.MILLIS, 100);
+        mScrollView.scrollTo(0, CONTENT_HEIGHT - 800 - 1000);
+        assertFalse(prefetcher.onScroll(mScrollView));
+
+        for (int i = 0; i < 100; i++) {
+            assertFalse(scrollFrame(prefetcher, 1));
+        }
+    }
+
+    @Test
+    public void scrollingAwayFromTheBottomNeverFires() {
+        final BoundaryPrefetcher prefetcher = new BoundaryPrefetcher(mEngine, false);
+        prefetcher.setLead(BoundaryPrefetcher.MILLIS, 100);
+        mScrollView.scrollTo(0, CONTENT_HEIGHT - 800 - 10);
+        assertFalse(prefetcher.onScroll(mScrollView));
+
+        for (int i = 0; i < 20; i++) {
+            assertFalse(scrollFrame(prefetcher, -200));
+        }
+    }
+
+    @Test
+    public void sampleGapResetsVelocity() {
+        final BoundaryPrefetcher prefetcher = new BoundaryPrefetcher(mEngine, false);
+        prefetcher.setLead(BoundaryPrefetcher.MILLIS, 100);
+        assertFalse(prefetcher.onScroll(mScrollView));
+        for (int i = 0; i < 4; i++) {
+            assertFalse(scrollFrame(prefetcher, 200));
+        }
+
+        // The fling stopped more than 100 ms ago, its speed is forgotten
+        mClock.advance(200);
+        assertFalse(scrollFrame(prefetcher, 1));
+        assertFalse(scrollFrame(prefetcher, 1));
+        assertEquals(CONTENT_HEIGHT - 800 - 802, BoundaryPrefetcher.remaining(mScrollView));
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the cost of constructing a {@link RefreshLayout}, with the
+ * components built on first use against built in the constructor.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class ConstructionCostTest {
+
+    private static final int WARM_UP = 5;
+    private static final int RUNS = 21;
+    // Long enough that the color arrays stand out of the noise
+    private static final int COLORS = 256;
+
+    private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
+
+    // Eager is how the constructor built the header and the footer before
+    private static RefreshLayout construct(boolean eager) {
+        final RefreshLayout layout = new RefreshLayout(RuntimeEnvironment.application);
+        if (eager) {
+            layout.ensureHeader();
+            layout.ensureProgressBar();
+        }
+        return layout;
+    }
+
+    // A layout with both color schemes set, they are kept by the header and the footer
+    private static RefreshLayout constructWithColors(int[] colors) {
+        final RefreshLayout layout = construct(true);
+        layout.setHeaderColorSchemeColors(colors);
+        layout.setFooterColorSchemeColors(colors);
+        return layout;
+    }
+
+    private static int[] colors(int seed) {
+        final int[] colors = new int[COLORS];
+        for (int i = 0; i < COLORS; i++) {
+            colors[i] = 0xff000000 | (seed * COLORS + i);
+        }
+        return colors;
+    }
+
+    /**
+     * @return The median CPU nanos and the least allocated bytes of a
+     *         construction, -1 bytes if the JVM can't count them
+     */
+    private long[] measure(boolean eager) {
+        final long[] nanos = new long[RUNS];
+        long bytes = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            final long allocationStart = GestureHarness.allocatedBytes(mThreadBean);
+            final long cpuStart = mThreadBean.getCurrentThreadCpuTime();
+            construct(eager);
+            nanos[i] = mThreadBean.getCurrentThreadCpuTime() - cpuStart;
+            final long allocated = GestureHarness.allocatedBytes(mThreadBean);
+            bytes = allocated < 0 ? -1 : Math.min(bytes, allocated - allocationStart);
+        }
+        Arrays.sort(nanos);
+        return new long[] {nanos[RUNS / 2], bytes};
+    }
+
+    @Test
+    public void lazyConstructorIsCheaper() {
+        // Load the classes and the shared resources first
+        for (int i = 0; i < WARM_UP; i++) {
+            construct(true);
+            construct(false);
+        }
+        final long[] lazy = measure(false);
+        final long[] eager = measure(true);
+
+        final String costs = "lazy " + Arrays.toString(lazy) + ", eager " + Arrays.toString(eager);
+        assertTrue(costs, lazy[0] < eager[0]);
+        if (lazy[1] >= 0) {
+            assertTrue(costs, lazy[1] < eager[1]);
+        }
+    }
+
+    @Test
+    public void layoutsShareTheirColors() {
+        final int[] colors = colors(1);
+        for (int i = 0; i < WARM_UP; i++) {
+            constructWithColors(colors);
+        }
+
+        // The least bytes allocated by a layout with the same colors as the
+        // first one, and with colors of its own
+        long shared = Long.MAX_VALUE;
+        long own = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            final int[] sameColors = colors.clone();
+            long start = GestureHarness.allocatedBytes(mThreadBean);
+            constructWithColors(sameColors);
+            shared = Math.min(shared, GestureHarness.allocatedBytes(mThreadBean) - start);
+
+            final int[] ownColors = colors(i + 2);
+            start = GestureHarness.allocatedBytes(mThreadBean);
+            constructWithColors(ownColors);
+            own = Math.min(own, GestureHarness.allocatedBytes(mThreadBean) - start);
+        }
+        if (GestureHarness.allocatedBytes(mThreadBean) < 0) {
+            return;
+        }
+
+        // Own colors are copied once for the header and the footer, and
+        // once for each footer schedule. Shared ones are not kept again.
+        final String costs = "shared " + shared + ", own " + own;
+        assertTrue(costs, own - shared >= 3 * COLORS * 4);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrameEngineTest {
+
+    private ManualFrameClock mClock;
+    private FrameEngine mEngine;
+    private View mHost;
+
+    private static final class RecordingAnimation extends FrameAnimation
+            implements FrameAnimation.Listener {
+        final ArrayList<Float> times = new ArrayList<>();
+        int starts;
+        int ends;
+        int repeats;
+
+        RecordingAnimation(long duration) {
+            setDuration(duration);
+            setInterpolator(Interpolators.LINEAR);
+            setAnimationListener(this);
+        }
+
+        @Override
+        protected void applyTransformation(float interpolatedTime) {
+            times.add(interpolatedTime);
+        }
+
+        @Override
+        public void onAnimationStart(FrameAnimation animation) {
+            starts++;
+        }
+
+        @Override
+        public void onAnimationEnd(FrameAnimation animation) {
+            ends++;
+        }
+
+        @Override
+        public void onAnimationRepeat(FrameAnimation animation) {
+            repeats++;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mClock = new ManualFrameClock(1000);
+        mHost = new View(RuntimeEnvironment.application);
+        mEngine = new FrameEngine(mHost);
+        mEngine.setLegacy(false);
+        mEngine.setClock(mClock);
+        mEngine.setScheduler(mClock);
+    }
+
+    @Test
+    public void clockRunsFramesAndDelayedCallbacksInOrder() {
+        final ArrayList<String> log = new ArrayList<>();
+        mClock.postFrameCallback(new Runnable() {
+            @Override
+            public void run() {
+                log.add("frame " + mClock.currentTimeMillis());
+                mClock.postFrameCallback(new Runnable() {
+                    @Override
+                    public void run() {
+                        log.add("next frame " + mClock.currentTimeMillis());
+                    }
+                });
+            }
+        });
+        mClock.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                log.add("delayed " + mClock.currentTimeMillis());
+            }
+        }, 16);
+        final Runnable removed = new Runnable() {
+            @Override
+            public void run() {
+                log.add("removed");
+            }
+        };
+        mClock.postDelayed(removed, 20);
+        mClock.removeCallbacks(removed);
+
+        mClock.advance(40);
+
+        assertEquals(2, mClock.getFrameCount());
+        assertEquals(1040, mClock.currentTimeMillis());
+        assertEquals("[delayed 1016, frame 1016, next frame 1032]", log.toString());
+        assertFalse(mClock.hasPendingCallbacks());
+    }
+
+    @Test
+    public void animationFollowsTheClock() {
+        final RecordingAnimation animation = new RecordingAnimation(160);
+        mEngine.start(animation, mHost);
+        mClock.advance(1000);
+
+        // Starts at the first frame, then a tenth per frame
+        assertEquals(11, animation.times.size());
+        for (int i = 0; i < 11; i++) {
+            assertEquals(i / 10f, animation.times.get(i), 1e-6f);
+        }
+        assertEquals(1, animation.starts);
+        assertEquals(1, animation.ends);
+        assertTrue(animation.hasEnded());
+        // No frame is requested once nothing runs
+        assertFalse(mClock.hasPendingCallbacks());
+    }
+
+    @Test
+    public void repeatCountRepeatsThenEnds() {
+        final RecordingAnimation animation = new RecordingAnimation(32);
+        animation.setRepeatCount(2);
+        mEngine.start(animation, mHost);
+        mClock.advance(1000);
+
+        assertEquals(2, animation.repeats);
+        assertEquals(1, animation.starts);
+        assertEquals(1, animation.ends);
+        assertFalse(mClock.hasPendingCallbacks());
+    }
+
+    @Test
+    public void clearCancelsWithoutNotifying() {
+        final RecordingAnimation animation = new RecordingAnimation(32);
+        animation.setRepeatCount(FrameAnimation.INFINITE);
+        mEngine.start(animation, mHost);
+        mClock.advance(500);
+        assertTrue(animation.repeats > 0);
+
+        mEngine.clear(mHost);
+        final int frames = animation.times.size();
+        mClock.advance(500);
+
+        assertTrue(animation.hasEnded());
+        assertEquals(0, animation.ends);
+        assertEquals(frames, animation.times.size());
+        assertFalse(mClock.hasPendingCallbacks());
+    }
+
+    @Test
+    public void startReplacesTheAnimationOfTheHost() {
+        final RecordingAnimation first = new RecordingAnimation(160);
+        final RecordingAnimation second = new RecordingAnimation(160);
+        mEngine.start(first, mHost);
+        mClock.advance(48);
+        mEngine.start(second, mHost);
+        mClock.advance(1000);
+
+        assertTrue(first.hasEnded());
+        assertEquals(0, first.ends);
+        assertEquals(3, first.times.size());
+        assertEquals(1, second.ends);
+    }
+
+    @Test
+    public void restartedAnimationRunsAgain() {
+        final RecordingAnimation animation = new RecordingAnimation(160);
+        mEngine.start(animation, mHost);
+        mClock.advance(1000);
+        mEngine.start(animation, mHost);
+        mClock.advance(1000);
+
+        assertEquals(2, animation.starts);
+        assertEquals(2, animation.ends);
+        assertEquals(22, animation.times.size());
+    }
+}
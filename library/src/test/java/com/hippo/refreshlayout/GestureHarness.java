@@ -0,0 +1,248 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.robolectric.RuntimeEnvironment;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Drives a {@link RefreshLayout} through scripted touch and nested scroll
+ * streams on a {@link ManualFrameClock}, and reports the cost of each event.
+ * <p>
+ * Touch events are {@link #EVENT_INTERVAL} milliseconds apart, so two
+ * events land in each frame like on a 120 Hz touch panel. A layout pass
+ * runs at the end of each frame if one was requested, like the traversal
+ * of a window.
+ * </p>
+ */
+final class GestureHarness {
+
+    static final int WIDTH = 480;
+    static final int HEIGHT = 800;
+    static final long EVENT_INTERVAL = ManualFrameClock.FRAME_INTERVAL / 2;
+
+    final RefreshLayout layout;
+    final View target;
+    final ManualFrameClock clock;
+
+    private final ThreadMXBean mThreadBean = ManagementFactory.getThreadMXBean();
+
+    GestureHarness() {
+        this(new View(RuntimeEnvironment.application));
+    }
+
+    GestureHarness(View target) {
+        final Context context = RuntimeEnvironment.application;
+        this.target = target;
+        layout = new RefreshLayout(context);
+        clock = new ManualFrameClock(0);
+        final FrameEngine engine = layout.getFrameEngine();
+        engine.setClock(clock);
+        engine.setScheduler(clock);
+        layout.addView(target, ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+        layoutPass();
+    }
+
+    void layoutPass() {
+        layout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Move the clock, running a layout pass after each frame that requested one.
+     */
+    void advance(long millis) {
+        final long end = clock.currentTimeMillis() + millis;
+        while (clock.currentTimeMillis() < end) {
+            clock.advance(Math.min(ManualFrameClock.FRAME_INTERVAL,
+                    end - clock.currentTimeMillis()));
+            if (layout.isLayoutRequested()) {
+                layoutPass();
+            }
+        }
+    }
+
+    /**
+     * @return The y positions of a straight drag with the number of moves.
+     */
+    static float[] drag(float fromY, float toY, int moves) {
+        final float[] ys = new float[moves + 1];
+        for (int i = 0; i <= moves; i++) {
+            ys[i] = fromY + (toY - fromY) * i / moves;
+        }
+        return ys;
+    }
+
+    /**
+     * Dispatch a down at the first position, a move at each other one and
+     * an up at the last one.
+     */
+    Report touch(float[] ys) {
+        final Report report = new Report(ys.length + 1);
+        final long downTime = clock.currentTimeMillis();
+        final float x = WIDTH / 2;
+        for (int i = 0; i <= ys.length; i++) {
+            final int action = i == 0 ? MotionEvent.ACTION_DOWN
+                    : i == ys.length ? MotionEvent.ACTION_UP : MotionEvent.ACTION_MOVE;
+            final float y = ys[Math.min(i, ys.length - 1)];
+            final MotionEvent ev = MotionEvent.obtain(downTime, clock.currentTimeMillis(),
+                    action, x, y, 0);
+            report.begin();
+            layout.dispatchTouchEvent(ev);
+            report.end(i);
+            ev.recycle();
+            advance(EVENT_INTERVAL);
+        }
+        return report;
+    }
+
+    /**
+     * Run a nested scroll of the target, each value is the scroll the
+     * target could not consume, negative to pull down.
+     */
+    Report nestedScroll(int[] unconsumed) {
+        final Report report = new Report(unconsumed.length + 2);
+        final int[] consumed = new int[2];
+        report.begin();
+        if (layout.onStartNestedScroll(target, target, View.SCROLL_AXIS_VERTICAL)) {
+            layout.onNestedScrollAccepted(target, target, View.SCROLL_AXIS_VERTICAL);
+        }
+        report.end(0);
+        for (int i = 0; i < unconsumed.length; i++) {
+            advance(EVENT_INTERVAL);
+            consumed[0] = consumed[1] = 0;
+            report.begin();
+            layout.onNestedPreScroll(target, 0, unconsumed[i], consumed);
+            layout.onNestedScroll(target, 0, 0, 0, unconsumed[i] - consumed[1]);
+            report.end(i + 1);
+        }
+        advance(EVENT_INTERVAL);
+        report.begin();
+        layout.onStopNestedScroll(target);
+        report.end(unconsumed.length + 1);
+        return report;
+    }
+
+    /**
+     * The cost of a scripted stream, counters include the frames run between events.
+     */
+    final class Report {
+        final long[] cpuNanos;
+        // -1 if the JVM can't count allocations
+        final long[] allocatedBytes;
+
+        private final int mStartRequestLayouts = layout.mRequestLayoutCount;
+        private final int mStartInvalidates = layout.mInvalidateCount;
+        private final int mStartLayouts = layout.mLayoutCount;
+        private final int mStartFrames = clock.getFrameCount();
+
+        private long mCpuStart;
+        private long mAllocationStart;
+
+        Report(int events) {
+            cpuNanos = new long[events];
+            allocatedBytes = new long[events];
+        }
+
+        void begin() {
+            mAllocationStart = allocatedBytes(mThreadBean);
+            mCpuStart = mThreadBean.getCurrentThreadCpuTime();
+        }
+
+        void end(int event) {
+            cpuNanos[event] = mThreadBean.getCurrentThreadCpuTime() - mCpuStart;
+            final long allocated = allocatedBytes(mThreadBean);
+            allocatedBytes[event] = allocated < 0 ? -1 : allocated - mAllocationStart;
+        }
+
+        int events() {
+            return cpuNanos.length;
+        }
+
+        int frames() {
+            return clock.getFrameCount() - mStartFrames;
+        }
+
+        int requestLayouts() {
+            return layout.mRequestLayoutCount - mStartRequestLayouts;
+        }
+
+        int invalidates() {
+            return layout.mInvalidateCount - mStartInvalidates;
+        }
+
+        int layouts() {
+            return layout.mLayoutCount - mStartLayouts;
+        }
+
+        long maxCpuNanos() {
+            long max = 0;
+            for (long nanos : cpuNanos) {
+                max = Math.max(max, nanos);
+            }
+            return max;
+        }
+
+        /**
+         * @return The bytes allocated by the events from the first one on, or -1.
+         */
+        long allocatedBytesFrom(int first) {
+            long total = 0;
+            for (int i = first; i < allocatedBytes.length; i++) {
+                if (allocatedBytes[i] < 0) {
+                    return -1;
+                }
+                total += allocatedBytes[i];
+            }
+            return total;
+        }
+
+        @Override
+        public String toString() {
+            return "events=" + events() + " frames=" + frames()
+                    + " maxCpuNanos=" + maxCpuNanos()
+                    + " allocatedBytes=" + allocatedBytesFrom(0)
+                    + " requestLayouts=" + requestLayouts()
+                    + " invalidates=" + invalidates()
+                    + " layouts=" + layouts();
+        }
+    }
+
+    /**
+     * @return The bytes allocated by the current thread so far, or -1 if
+     *         the JVM can't count them.
+     */
+    static long allocatedBytes(ThreadMXBean threadBean) {
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean bean =
+                    (com.sun.management.ThreadMXBean) threadBean;
+            if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class HeaderPrewarmTest {
+
+    private GestureHarness mHarness;
+    // Loads are started by the test, or never
+    private final ArrayList<Runnable> mPending = new ArrayList<>();
+    private final ArrayList<String> mLog = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mHarness = new GestureHarness();
+        final RefreshLayout layout = mHarness.layout;
+        layout.setHeaderPrewarmEnabled(true);
+        layout.setOnHeaderPrewarmListener(new RefreshLayout.OnHeaderPrewarmListener() {
+            @Override
+            public void onHeaderPrewarm() {
+                mLog.add("prewarm");
+            }
+
+            @Override
+            public void onHeaderPrewarmCancelled() {
+                mLog.add("prewarm cancelled");
+            }
+        });
+        layout.setOnRefreshListener(new RefreshLayout.OnRefreshListener() {
+            @Override
+            public void onHeaderRefresh() {
+                mLog.add("refresh");
+            }
+
+            @Override
+            public void onFooterRefresh() {}
+        });
+        layout.setRefreshSource(new RefreshLayout.RefreshSource() {
+            @Override
+            public Runnable loadHeader() {
+                mLog.add("load header");
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        mLog.add("apply header");
+                    }
+                };
+            }
+
+            @Override
+            public Runnable loadFooter() {
+                return null;
+            }
+
+            @Override
+            public void onRefreshFailed(boolean header, Exception e) {
+                mLog.add("failed header");
+            }
+        });
+        layout.setRefreshExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mPending.add(command);
+            }
+        });
+    }
+
+    private void runPending() {
+        for (Runnable runnable : new ArrayList<>(mPending)) {
+            runnable.run();
+        }
+        mPending.clear();
+    }
+
+    private static float[] concat(float[] first, float[] second) {
+        final float[] ys = new float[first.length + second.length];
+        System.arraycopy(first, 0, ys, 0, first.length);
+        System.arraycopy(second, 0, ys, first.length, second.length);
+        return ys;
+    }
+
+    @Test
+    public void releaseBeyondTriggerAdoptsTheLoad() {
+        // Cross the trigger distance and release beyond it
+        mHarness.touch(GestureHarness.drag(100, 700, 60));
+        assertEquals(1, mPending.size());
+        assertTrue(mHarness.layout.isHeaderRefreshing());
+
+        // The load finishes while the spinner settles, its result is held
+        runPending();
+        assertEquals("[prewarm, load header]", mLog.toString());
+
+        mHarness.advance(1000);
+        // No second load, the held result is applied
+        assertTrue(mPending.isEmpty());
+        assertEquals("[prewarm, load header, refresh, apply header]", mLog.toString());
+        assertFalse(mHarness.layout.isHeaderRefreshing());
+    }
+
+    @Test
+    public void releaseBelowTriggerCancelsTheLoad() {
+        // Cross the trigger distance, then go back above it before the release
+        mHarness.touch(concat(GestureHarness.drag(100, 700, 60),
+                GestureHarness.drag(700, 120, 60)));
+        assertEquals(1, mPending.size());
+        assertFalse(mHarness.layout.isHeaderRefreshing());
+
+        // The cancelled load never runs
+        runPending();
+        mHarness.advance(1000);
+        assertEquals("[prewarm, prewarm cancelled]", mLog.toString());
+        assertFalse(mHarness.layout.isHeaderRefreshing());
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.graphics.Color;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class LazyComponentsTest {
+
+    private GestureHarness mHarness;
+
+    @Before
+    public void setUp() {
+        mHarness = new GestureHarness();
+        // Configuring the components doesn't create them
+        mHarness.layout.setHeaderColorSchemeColors(Color.RED, Color.GREEN);
+        mHarness.layout.setHeaderProgressBackgroundColorSchemeColor(Color.BLUE);
+        mHarness.layout.setFooterColorSchemeColors(Color.RED, Color.GREEN, Color.BLUE);
+        mHarness.advance(1000);
+    }
+
+    @Test
+    public void componentsAreNotCreatedUntilUsed() {
+        final RefreshLayout layout = mHarness.layout;
+        assertNull(layout.mCircleView);
+        assertNull(layout.mProgress);
+        assertNull(layout.mProgressBar);
+        assertEquals(1, layout.getChildCount());
+    }
+
+    @Test
+    public void headerIsCreatedByFirstPull() {
+        final RefreshLayout layout = mHarness.layout;
+        mHarness.touch(GestureHarness.drag(100, 300, 50));
+
+        assertNotNull(layout.mCircleView);
+        assertSame(layout, layout.mCircleView.getParent());
+        assertSame(layout.mProgress, layout.mCircleView.getDrawable());
+        // Laid out right away, the pull moved it in the same gesture
+        assertTrue(layout.mCircleView.getWidth() > 0);
+        assertNull(layout.mProgressBar);
+    }
+
+    @Test
+    public void headerIsCreatedByRefresh() {
+        final RefreshLayout layout = mHarness.layout;
+        layout.setHeaderRefreshing(true);
+
+        assertNotNull(layout.mCircleView);
+        assertEquals(2, layout.getChildCount());
+        assertNull(layout.mProgressBar);
+    }
+
+    @Test
+    public void progressBarIsCreatedByFooterRefresh() {
+        final RefreshLayout layout = mHarness.layout;
+        layout.setFooterRefreshing(true);
+
+        assertNotNull(layout.mProgressBar);
+        assertTrue(layout.mProgressBar.isRunning());
+        assertNull(layout.mCircleView);
+    }
+}
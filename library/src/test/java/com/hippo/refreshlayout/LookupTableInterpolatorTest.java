@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AccelerateInterpolator;
+import android.view.animation.DecelerateInterpolator;
+import android.view.animation.Interpolator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class LookupTableInterpolatorTest {
+
+    // Linear interpolation between 201 samples errs at most h^2 / 8 * max|f''|,
+    // that is 3.75e-5 for the steepest curve, DecelerateInterpolator(2f)
+    private static final float EPSILON = 1e-4f;
+    private static final int INPUTS = 10007;
+
+    private static float maxError(Interpolator baked, Interpolator exact) {
+        float max = 0;
+        for (int i = 0; i <= INPUTS; i++) {
+            final float input = i / (float) INPUTS;
+            max = Math.max(max, Math.abs(baked.getInterpolation(input)
+                    - exact.getInterpolation(input)));
+        }
+        return max;
+    }
+
+    private static void assertBaked(Interpolator baked, Interpolator exact) {
+        final float error = maxError(baked, exact);
+        assertTrue("max error " + error, error < EPSILON);
+        assertEquals(exact.getInterpolation(0f), baked.getInterpolation(0f), 0f);
+        assertEquals(exact.getInterpolation(1f), baked.getInterpolation(1f), 0f);
+    }
+
+    @Test
+    public void decelerateMatchesExactCurve() {
+        assertBaked(Interpolators.DECELERATE, new DecelerateInterpolator(2f));
+    }
+
+    @Test
+    public void accelerateMatchesExactCurve() {
+        assertBaked(Interpolators.ACCELERATE, new AccelerateInterpolator(1.5f));
+    }
+
+    @Test
+    public void accelerateDecelerateMatchesExactCurve() {
+        assertBaked(Interpolators.ACCELERATE_DECELERATE, new AccelerateDecelerateInterpolator());
+    }
+
+    @Test
+    public void inputsOutsideRangeAreClamped() {
+        final Interpolator baked = Interpolators.DECELERATE;
+        assertEquals(baked.getInterpolation(0f), baked.getInterpolation(-0.5f), 0f);
+        assertEquals(baked.getInterpolation(1f), baked.getInterpolation(1.5f), 0f);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import java.util.ArrayList;
+
+/**
+ * A clock and scheduler that only move when {@link #advance(long)} is
+ * called, so animations and timeouts can be stepped frame by frame
+ * without waiting. Frames are {@link #FRAME_INTERVAL} milliseconds apart.
+ */
+final class ManualFrameClock implements FrameEngine.Clock, FrameEngine.Scheduler {
+
+    static final long FRAME_INTERVAL = 16;
+
+    private long mTime;
+    private final ArrayList<Runnable> mFrameCallbacks = new ArrayList<>();
+    // Reused to run the callbacks of a frame
+    private final ArrayList<Runnable> mRunning = new ArrayList<>();
+    private final ArrayList<Runnable> mDelayedCallbacks = new ArrayList<>();
+    private final ArrayList<Long> mDelayedTimes = new ArrayList<>();
+
+    private int mFrameCount;
+
+    ManualFrameClock(long startTime) {
+        mTime = startTime;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return mTime;
+    }
+
+    @Override
+    public void postFrameCallback(Runnable callback) {
+        mFrameCallbacks.add(callback);
+    }
+
+    @Override
+    public void postDelayed(Runnable callback, long delayMillis) {
+        // Keep the list sorted by time, callbacks of the same time run in post order
+        final long time = mTime + Math.max(0, delayMillis);
+        int index = mDelayedTimes.size();
+        while (index > 0 && mDelayedTimes.get(index - 1) > time) {
+            index--;
+        }
+        mDelayedCallbacks.add(index, callback);
+        mDelayedTimes.add(index, time);
+    }
+
+    @Override
+    public void removeCallbacks(Runnable callback) {
+        while (mFrameCallbacks.remove(callback)) {
+            // Remove all
+        }
+        // Removed by a callback of the running frame
+        for (int i = 0, n = mRunning.size(); i < n; i++) {
+            if (mRunning.get(i) == callback) {
+                mRunning.set(i, null);
+            }
+        }
+        for (int i = mDelayedCallbacks.size() - 1; i >= 0; i--) {
+            if (mDelayedCallbacks.get(i) == callback) {
+                mDelayedCallbacks.remove(i);
+                mDelayedTimes.remove(i);
+            }
+        }
+    }
+
+    /**
+     * Move the time forward frame by frame. At each frame, the due delayed
+     * callbacks run first, then the frame callbacks posted before the frame.
+     */
+    void advance(long millis) {
+        if (millis < 0) {
+            throw new IllegalStateException("millis < 0");
+        }
+        final long end = mTime + millis;
+        while (mTime + FRAME_INTERVAL <= end) {
+            doFrame(mTime + FRAME_INTERVAL);
+        }
+        runDelayedCallbacks(end);
+        mTime = end;
+    }
+
+    private void doFrame(long frameTime) {
+        runDelayedCallbacks(frameTime);
+        mTime = frameTime;
+        mFrameCount++;
+
+        // Callbacks posted by callbacks run at the next frame
+        final ArrayList<Runnable> running = mRunning;
+        running.addAll(mFrameCallbacks);
+        mFrameCallbacks.clear();
+        for (int i = 0, n = running.size(); i < n; i++) {
+            final Runnable callback = running.get(i);
+            if (callback != null) {
+                callback.run();
+            }
+        }
+        running.clear();
+    }
+
+    private void runDelayedCallbacks(long until) {
+        while (!mDelayedTimes.isEmpty() && mDelayedTimes.get(0) <= until) {
+            mTime = Math.max(mTime, mDelayedTimes.remove(0));
+            mDelayedCallbacks.remove(0).run();
+        }
+    }
+
+    /**
+     * @return The number of frames run so far.
+     */
+    int getFrameCount() {
+        return mFrameCount;
+    }
+
+    boolean hasPendingCallbacks() {
+        return !mFrameCallbacks.isEmpty() || !mDelayedCallbacks.isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class PaginationControllerTest {
+
+    private GestureHarness mHarness;
+    // Loads are started by the test, or never
+    private final ArrayList<Runnable> mPending = new ArrayList<>();
+    private final ArrayList<String> mLog = new ArrayList<>();
+    private PaginationController mController;
+
+    @Before
+    public void setUp() {
+        mHarness = new GestureHarness();
+        mController = new PaginationController(new PaginationController.PageSource() {
+            @Override
+            public Runnable loadPage(final int page) {
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        mLog.add("applied " + page);
+                    }
+                };
+            }
+
+            @Override
+            public void onPageFailed(int page, Exception e) {
+                mLog.add("failed " + page + " " + e.getClass().getSimpleName());
+            }
+        }, 0);
+        mController.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mPending.add(command);
+            }
+        });
+        mController.setTimeout(1000);
+        mHarness.layout.setPaginationController(mController);
+    }
+
+    private void runPending() {
+        for (Runnable runnable : new ArrayList<>(mPending)) {
+            runnable.run();
+        }
+        mPending.clear();
+    }
+
+    @Test
+    public void pageLoadTimesOut() {
+        mController.requestNextPage();
+        assertTrue(mHarness.layout.isFooterRefreshing());
+
+        mHarness.advance(999);
+        assertEquals(PaginationController.STATE_LOADING, mController.getState());
+        mHarness.advance(1);
+
+        assertEquals("[failed 0 " + TimeoutException.class.getSimpleName() + "]",
+                mLog.toString());
+        assertEquals(PaginationController.STATE_ERROR, mController.getState());
+        assertFalse(mHarness.layout.isFooterRefreshing());
+
+        // The interrupted load finishing late is dropped
+        runPending();
+        assertEquals(1, mLog.size());
+    }
+
+    @Test
+    public void pageLoadInTimeIsApplied() {
+        mController.requestNextPage();
+        mHarness.advance(500);
+        runPending();
+        mHarness.advance(1000);
+
+        assertEquals("[applied 0]", mLog.toString());
+        assertEquals(PaginationController.STATE_IDLE, mController.getState());
+        assertEquals(1, mController.getNextPage());
+    }
+
+    @Test
+    public void exhaustedDisablesFooterUntilReset() {
+        final RefreshLayout layout = mHarness.layout;
+        assertTrue(layout.isEnableSwipeFooter());
+        mController.markExhausted();
+        assertFalse(layout.isEnableSwipeFooter());
+
+        mController.reset();
+        assertTrue(layout.isEnableSwipeFooter());
+    }
+
+    @Test
+    public void footerDisabledByAppStaysDisabled() {
+        final RefreshLayout layout = mHarness.layout;
+        layout.setEnableSwipeFooter(false);
+        mController.requestNextPage();
+        runPending();
+        assertFalse(layout.isEnableSwipeFooter());
+
+        mController.markExhausted();
+        mController.reset();
+        assertFalse(layout.isEnableSwipeFooter());
+    }
+
+    @Test
+    public void removingExhaustedControllerRestoresFooter() {
+        final RefreshLayout layout = mHarness.layout;
+        mController.markExhausted();
+        layout.setPaginationController(null);
+        assertTrue(layout.isEnableSwipeFooter());
+    }
+}
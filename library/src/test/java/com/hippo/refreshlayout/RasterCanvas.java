@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Region;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A canvas that rasterizes the rectangle clips, the color fills and the
+ * circles drawn by {@link SwipeProgressBar} into an array, the canvas
+ * of Robolectric only records the calls. A pixel is covered if its center
+ * is, colors are blended with source over in premultiplied floats.
+ */
+final class RasterCanvas extends Canvas {
+
+    private final int mWidth;
+    private final int mHeight;
+    // Premultiplied alpha, red, green and blue of each pixel
+    private final float[] mPixels;
+    private final ArrayList<State> mStack = new ArrayList<>();
+    private State mState;
+
+    RasterCanvas(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mPixels = new float[width * height * 4];
+        mState = new State(width * height);
+        Arrays.fill(mState.clip, true);
+    }
+
+    float[] getPixels() {
+        return mPixels.clone();
+    }
+
+    /**
+     * @return The alpha of the pixel.
+     */
+    float getAlpha(int x, int y) {
+        return mPixels[(y * mWidth + x) * 4];
+    }
+
+    @Override
+    public int save() {
+        mStack.add(mState);
+        mState = mState.copy();
+        return mStack.size();
+    }
+
+    @Override
+    public void restore() {
+        mState = mStack.remove(mStack.size() - 1);
+    }
+
+    @Override
+    public int getSaveCount() {
+        return mStack.size() + 1;
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        while (getSaveCount() > saveCount) {
+            restore();
+        }
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        mState.tx += dx * mState.sx;
+        mState.ty += dy * mState.sy;
+    }
+
+    @Override
+    public void scale(float sx, float sy) {
+        mState.sx *= sx;
+        mState.sy *= sy;
+    }
+
+    @Override
+    public boolean clipRect(float left, float top, float right, float bottom, Region.Op op) {
+        final State state = mState;
+        final float l = state.tx + left * state.sx;
+        final float t = state.ty + top * state.sy;
+        final float r = state.tx + right * state.sx;
+        final float b = state.ty + bottom * state.sy;
+        final boolean difference = op == Region.Op.DIFFERENCE;
+        if (!difference && op != Region.Op.INTERSECT) {
+            throw new IllegalStateException("Unsupported op " + op);
+        }
+        for (int y = 0; y < mHeight; y++) {
+            for (int x = 0; x < mWidth; x++) {
+                final float px = x + 0.5f;
+                final float py = y + 0.5f;
+                final boolean inside = px >= l && px < r && py >= t && py < b;
+                state.clip[y * mWidth + x] &= inside != difference;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean clipRect(float left, float top, float right, float bottom) {
+        return clipRect(left, top, right, bottom, Region.Op.INTERSECT);
+    }
+
+    @Override
+    public boolean clipRect(int left, int top, int right, int bottom) {
+        return clipRect((float) left, top, right, bottom, Region.Op.INTERSECT);
+    }
+
+    @Override
+    public boolean clipRect(RectF rect, Region.Op op) {
+        return clipRect(rect.left, rect.top, rect.right, rect.bottom, op);
+    }
+
+    @Override
+    public boolean clipRect(Rect rect, Region.Op op) {
+        return clipRect(rect.left, rect.top, rect.right, rect.bottom, op);
+    }
+
+    @Override
+    public boolean clipRect(RectF rect) {
+        return clipRect(rect, Region.Op.INTERSECT);
+    }
+
+    @Override
+    public boolean clipRect(Rect rect) {
+        return clipRect(rect, Region.Op.INTERSECT);
+    }
+
+    @Override
+    public void drawColor(int color) {
+        for (int i = 0, n = mWidth * mHeight; i < n; i++) {
+            if (mState.clip[i]) {
+                blend(i, color);
+            }
+        }
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        final State state = mState;
+        final float x0 = state.tx + cx * state.sx;
+        final float y0 = state.ty + cy * state.sy;
+        final float rx = radius * state.sx;
+        final float ry = radius * state.sy;
+        if (rx <= 0 || ry <= 0) {
+            return;
+        }
+        for (int y = 0; y < mHeight; y++) {
+            for (int x = 0; x < mWidth; x++) {
+                final int i = y * mWidth + x;
+                final float dx = (x + 0.5f - x0) / rx;
+                final float dy = (y + 0.5f - y0) / ry;
+                if (state.clip[i] && dx * dx + dy * dy <= 1f) {
+                    blend(i, paint.getColor());
+                }
+            }
+        }
+    }
+
+    private void blend(int i, int color) {
+        final float a = Color.alpha(color) / 255f;
+        final float keep = 1f - a;
+        final int o = i * 4;
+        mPixels[o] = a + mPixels[o] * keep;
+        mPixels[o + 1] = Color.red(color) / 255f * a + mPixels[o + 1] * keep;
+        mPixels[o + 2] = Color.green(color) / 255f * a + mPixels[o + 2] * keep;
+        mPixels[o + 3] = Color.blue(color) / 255f * a + mPixels[o + 3] * keep;
+    }
+
+    private static final class State {
+        final boolean[] clip;
+        float tx;
+        float ty;
+        float sx = 1f;
+        float sy = 1f;
+
+        State(int size) {
+            clip = new boolean[size];
+        }
+
+        State copy() {
+            final State state = new State(clip.length);
+            System.arraycopy(clip, 0, state.clip, 0, clip.length);
+            state.tx = tx;
+            state.ty = ty;
+            state.sx = sx;
+            state.sy = sy;
+            return state;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RefreshHistogramTest {
+
+    @Test
+    public void valueOnABoundLandsInItsBucket() {
+        final RefreshHistogram histogram = new RefreshHistogram(10, 20, 30);
+        histogram.record(10);
+        histogram.record(20);
+        histogram.record(21);
+        histogram.record(0);
+
+        assertEquals(2, histogram.getBucketSamples(0));
+        assertEquals(1, histogram.getBucketSamples(1));
+        assertEquals(1, histogram.getBucketSamples(2));
+        assertEquals(0, histogram.getBucketSamples(3));
+    }
+
+    @Test
+    public void valuesAboveTheLastBoundOverflow() {
+        final RefreshHistogram histogram = new RefreshHistogram(10, 20, 30);
+        histogram.record(31);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(4, histogram.getBucketCount());
+        assertEquals(2, histogram.getBucketSamples(3));
+        assertEquals(Long.MAX_VALUE, histogram.getBucketBound(3));
+        assertEquals(30, histogram.getBucketBound(2));
+    }
+
+    @Test
+    public void percentiles() {
+        final RefreshHistogram histogram = new RefreshHistogram(10, 20, 30);
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5);
+        }
+        for (int i = 0; i < 85; i++) {
+            histogram.record(15);
+        }
+        for (int i = 0; i < 5; i++) {
+            histogram.record(100);
+        }
+        assertEquals(100, histogram.getSampleCount());
+        assertEquals(10, histogram.getPercentile(0));
+        assertEquals(20, histogram.getPercentile(95));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void resetRemovesAllSamples() {
+        final RefreshHistogram histogram = new RefreshHistogram(RefreshHistogram.COUNT_BOUNDS);
+        histogram.record(3);
+        histogram.record(1000);
+        histogram.reset();
+
+        assertEquals(0, histogram.getSampleCount());
+        assertEquals(0, histogram.getPercentile(100));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void boundsMustBeAscending() {
+        new RefreshHistogram(10, 10, 20);
+    }
+}
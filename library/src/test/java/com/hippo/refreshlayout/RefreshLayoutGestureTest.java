@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RefreshLayoutGestureTest {
+
+    // Creating the header adds the circle and shows it, each requests a layout
+    private static final int HEADER_SETUP_LAYOUTS = 3;
+
+    private GestureHarness mHarness;
+    private int mHeaderRefreshCount;
+
+    @Before
+    public void setUp() {
+        mHarness = new GestureHarness();
+        mHarness.layout.setOnRefreshListener(new RefreshLayout.OnRefreshListener() {
+            @Override
+            public void onHeaderRefresh() {
+                mHeaderRefreshCount++;
+            }
+
+            @Override
+            public void onFooterRefresh() {
+            }
+        });
+    }
+
+    @Test
+    public void headerPullRequestsAtMostOneLayoutPerFrame() {
+        final GestureHarness.Report report = mHarness.touch(GestureHarness.drag(100, 700, 600));
+
+        assertEquals(602, report.events());
+        assertTrue(report.toString(),
+                report.requestLayouts() <= report.frames() + HEADER_SETUP_LAYOUTS);
+        assertTrue(report.toString(), report.layouts() <= report.frames() + HEADER_SETUP_LAYOUTS);
+
+        mHarness.advance(1000);
+        assertTrue(mHarness.layout.isHeaderRefreshing());
+        assertEquals(1, mHeaderRefreshCount);
+    }
+
+    @Test
+    public void headerPullWithoutBringToFrontCausesNoLayout() {
+        mHarness.layout.setHeaderBringToFront(false);
+        // Create the header first, adding the circle requests a layout
+        mHarness.touch(GestureHarness.drag(100, 150, 20));
+        mHarness.advance(1000);
+
+        final GestureHarness.Report report = mHarness.touch(GestureHarness.drag(100, 700, 600));
+
+        assertEquals(report.toString(), 0, report.requestLayouts());
+        assertEquals(report.toString(), 0, report.layouts());
+    }
+
+    @Test
+    public void disabledBoundaryCacheChecksScrolledChild() {
+        final boolean[] canScrollUp = new boolean[1];
+        mHarness.layout.setOnChildScrollUpCallback(new RefreshLayout.OnChildScrollCallback() {
+            @Override
+            public boolean canChildScrollUp(RefreshLayout parent, View child) {
+                return canScrollUp[0];
+            }
+
+            @Override
+            public boolean canChildScrollDown(RefreshLayout parent, View child) {
+                return true;
+            }
+        });
+        // The cache learns the child is at the top
+        mHarness.touch(GestureHarness.drag(100, 110, 4));
+        mHarness.advance(1000);
+
+        mHarness.layout.setScrollBoundaryCacheEnabled(false);
+        canScrollUp[0] = true;
+        mHarness.touch(GestureHarness.drag(100, 700, 600));
+        mHarness.advance(1000);
+
+        assertFalse(mHarness.layout.isHeaderRefreshing());
+        assertEquals(0, mHeaderRefreshCount);
+    }
+
+    private void dispatch(long downTime, int action, float y) {
+        final MotionEvent ev = MotionEvent.obtain(downTime,
+                mHarness.clock.currentTimeMillis(), action, GestureHarness.WIDTH / 2, y, 0);
+        mHarness.layout.dispatchTouchEvent(ev);
+        ev.recycle();
+    }
+
+    @Test
+    public void dragInvalidatesInTheFrameOfTheMove() {
+        final InvalidationCoalescer coalescer =
+                mHarness.layout.getFrameEngine().getInvalidationCoalescer();
+        final long downTime = mHarness.clock.currentTimeMillis();
+        // Drag the header below the trigger and let the alpha animation end
+        dispatch(downTime, MotionEvent.ACTION_DOWN, 100);
+        for (int y = 110; y <= 200; y += 10) {
+            mHarness.advance(GestureHarness.EVENT_INTERVAL);
+            dispatch(downTime, MotionEvent.ACTION_MOVE, y);
+        }
+        mHarness.advance(1000);
+        assertFalse(mHarness.clock.hasPendingCallbacks());
+
+        for (int y = 205; y <= 225; y += 5) {
+            final int issued = coalescer.getIssuedCount();
+            dispatch(downTime, MotionEvent.ACTION_MOVE, y);
+            mHarness.advance(ManualFrameClock.FRAME_INTERVAL);
+
+            // Issued by the frame that moved the spinner, no flush is left for the next one
+            assertTrue(coalescer.getIssuedCount() > issued);
+            assertFalse(mHarness.clock.hasPendingCallbacks());
+        }
+        dispatch(downTime, MotionEvent.ACTION_UP, 225);
+    }
+
+    @Test
+    public void dragBatchingCutsLayoutRequests() {
+        final GestureHarness.Report batched = mHarness.touch(GestureHarness.drag(100, 700, 600));
+        mHarness.layout.setHeaderRefreshing(false);
+        mHarness.advance(1000);
+
+        mHarness.layout.setDragBatchingEnabled(false);
+        final GestureHarness.Report unbatched = mHarness.touch(GestureHarness.drag(100, 700, 600));
+
+        // Two events land in each frame
+        assertTrue(batched + " / " + unbatched,
+                batched.requestLayouts() * 3 / 2 < unbatched.requestLayouts());
+    }
+
+    @Test
+    public void nestedPullRefreshesOnce() {
+        final int[] unconsumed = new int[600];
+        for (int i = 0; i < unconsumed.length; i++) {
+            unconsumed[i] = -2;
+        }
+        final GestureHarness.Report report = mHarness.nestedScroll(unconsumed);
+
+        assertEquals(602, report.events());
+        assertTrue(report.toString(),
+                report.requestLayouts() <= report.events() + HEADER_SETUP_LAYOUTS);
+
+        mHarness.advance(1000);
+        assertTrue(mHarness.layout.isHeaderRefreshing());
+        assertEquals(1, mHeaderRefreshCount);
+    }
+
+    @Test
+    public void shortPullDoesNotRefresh() {
+        // Half of the drag is applied, 25 pixels stay below the trigger distance
+        mHarness.touch(GestureHarness.drag(100, 150, 500));
+        mHarness.advance(1000);
+
+        assertFalse(mHarness.layout.isHeaderRefreshing());
+        assertEquals(0, mHeaderRefreshCount);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.content.Context;
+import android.view.WindowManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RefreshMetricsTest {
+
+    private GestureHarness mHarness;
+    private RefreshMetrics mMetrics;
+
+    @Before
+    public void setUp() {
+        mHarness = new GestureHarness();
+        mMetrics = new RefreshMetrics();
+    }
+
+    private static void setRefreshRate(float refreshRate) {
+        final WindowManager windowManager = (WindowManager) RuntimeEnvironment.application
+                .getSystemService(Context.WINDOW_SERVICE);
+        shadowOf(windowManager.getDefaultDisplay()).setRefreshRate(refreshRate);
+    }
+
+    @Test
+    public void spinnerAt60HzDropsNoFrame() {
+        setRefreshRate(60.0f);
+        mHarness.layout.setOnMetricsListener(mMetrics);
+        mHarness.layout.setHeaderRefreshing(true);
+        mHarness.advance(1000);
+
+        assertEquals(0, mMetrics.getDroppedFrames().getSampleCount());
+    }
+
+    @Test
+    public void spinnerAt120HzDropsEveryOtherFrame() {
+        setRefreshRate(120.0f);
+        mHarness.layout.setOnMetricsListener(mMetrics);
+        mHarness.layout.setHeaderRefreshing(true);
+        mHarness.advance(1000);
+
+        // The clock only runs 60 frames a second
+        final RefreshHistogram dropped = mMetrics.getDroppedFrames();
+        assertTrue(dropped.getSampleCount() > 50);
+        assertEquals(dropped.getSampleCount(), dropped.getBucketSamples(0));
+    }
+
+    // The bound of the bucket the value lands in
+    private static long bucketBound(long millis) {
+        final RefreshHistogram histogram = new RefreshHistogram(RefreshHistogram.MILLIS_BOUNDS);
+        histogram.record(millis);
+        return histogram.getPercentile(100);
+    }
+
+    @Test
+    public void refreshCycleRecordsLatencyAndDuration() {
+        final RefreshLayout layout = mHarness.layout;
+        final long[] callbackTime = {-1};
+        layout.setOnMetricsListener(mMetrics);
+        layout.setOnRefreshListener(new RefreshLayout.OnRefreshListener() {
+            @Override
+            public void onHeaderRefresh() {
+                callbackTime[0] = mHarness.clock.currentTimeMillis();
+            }
+
+            @Override
+            public void onFooterRefresh() {}
+        });
+
+        mHarness.touch(GestureHarness.drag(100, 700, 60));
+        // The up is one event interval before the end of the stream
+        final long releaseTime = mHarness.clock.currentTimeMillis()
+                - GestureHarness.EVENT_INTERVAL;
+        mHarness.advance(1000);
+        assertTrue(callbackTime[0] > releaseTime);
+        layout.setHeaderRefreshing(false);
+        final long duration = mHarness.clock.currentTimeMillis() - callbackTime[0];
+
+        final RefreshHistogram latency = mMetrics.getTriggerLatency(true);
+        assertEquals(1, latency.getSampleCount());
+        assertEquals(bucketBound(callbackTime[0] - releaseTime), latency.getPercentile(100));
+        final RefreshHistogram refresh = mMetrics.getRefreshDuration(true);
+        assertEquals(1, refresh.getSampleCount());
+        assertEquals(bucketBound(duration), refresh.getPercentile(100));
+        assertEquals(0, mMetrics.getTriggerLatency(false).getSampleCount());
+        assertEquals(0, mMetrics.getCancelCount(true));
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RefreshPipelineTest {
+
+    private GestureHarness mHarness;
+    // Loads are started by the test, or never
+    private final ArrayList<Runnable> mPending = new ArrayList<>();
+    private final ArrayList<String> mLog = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mHarness = new GestureHarness();
+        final RefreshLayout layout = mHarness.layout;
+        layout.setRefreshSource(new RefreshLayout.RefreshSource() {
+            @Override
+            public Runnable loadHeader() {
+                mLog.add("load header");
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        mLog.add("apply header, refreshing " + layout.isHeaderRefreshing());
+                    }
+                };
+            }
+
+            @Override
+            public Runnable loadFooter() {
+                mLog.add("load footer");
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        mLog.add("apply footer, refreshing " + layout.isFooterRefreshing());
+                    }
+                };
+            }
+
+            @Override
+            public void onRefreshFailed(boolean header, Exception e) {
+                mLog.add("failed " + (header ? "header " : "footer ")
+                        + e.getClass().getSimpleName());
+            }
+        });
+        layout.setRefreshExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mPending.add(command);
+            }
+        });
+        layout.setRefreshTimeout(1000);
+    }
+
+    private void runPending() {
+        for (Runnable runnable : new ArrayList<>(mPending)) {
+            runnable.run();
+        }
+        mPending.clear();
+    }
+
+    @Test
+    public void secondTriggerIsDropped() {
+        final RefreshLayout layout = mHarness.layout;
+        layout.refreshHeader();
+        // The app hides the spinner early and triggers again
+        layout.setHeaderRefreshing(false);
+        layout.refreshHeader();
+        assertEquals(1, mPending.size());
+
+        runPending();
+        mHarness.advance(500);
+        assertEquals("[load header, apply header, refreshing true]", mLog.toString());
+        assertFalse(layout.isHeaderRefreshing());
+    }
+
+    @Test
+    public void timeoutClearsTheSpinner() {
+        final RefreshLayout layout = mHarness.layout;
+        layout.refreshHeader();
+
+        mHarness.advance(999);
+        assertTrue(layout.isHeaderRefreshing());
+        mHarness.advance(1);
+        assertEquals("[failed header " + TimeoutException.class.getSimpleName() + "]",
+                mLog.toString());
+        assertFalse(layout.isHeaderRefreshing());
+
+        // The interrupted load finishing late is dropped
+        runPending();
+        mHarness.advance(500);
+        assertEquals(1, mLog.size());
+    }
+
+    @Test
+    public void headerRefreshCancelsFooterLoad() {
+        final RefreshLayout layout = mHarness.layout;
+        layout.refreshFooter();
+        assertTrue(layout.isFooterRefreshing());
+
+        layout.refreshHeader();
+        assertFalse(layout.isFooterRefreshing());
+        assertTrue(layout.isHeaderRefreshing());
+
+        // The cancelled footer load never runs, the header one is applied
+        runPending();
+        mHarness.advance(500);
+        assertEquals("[load header, apply header, refreshing true]", mLog.toString());
+        assertFalse(layout.isHeaderRefreshing());
+    }
+
+    @Test
+    public void resultIsAppliedBeforeRefreshingIsCleared() {
+        final RefreshLayout layout = mHarness.layout;
+        layout.refreshFooter();
+        runPending();
+        mHarness.advance(500);
+        assertEquals("[load footer, apply footer, refreshing true]", mLog.toString());
+        assertFalse(layout.isFooterRefreshing());
+
+        mLog.clear();
+        layout.refreshHeader();
+        runPending();
+        mHarness.advance(500);
+        // The result sees the spinner still showing
+        assertEquals("[load header, apply header, refreshing true]", mLog.toString());
+        assertFalse(layout.isHeaderRefreshing());
+    }
+}
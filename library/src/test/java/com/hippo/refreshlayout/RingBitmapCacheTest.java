@@ -0,0 +1,94 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RingBitmapCacheTest {
+
+    @Test
+    public void clearKeepsBitmapsDrawable() {
+        final RingBitmapCache cache = new RingBitmapCache(2);
+        cache.setSize(8, 8);
+        final long key = RingBitmapCache.key(9, -1);
+        final Bitmap bitmap = cache.obtain(key);
+        assertNotNull(cache.get(key));
+
+        cache.clear();
+        assertNull(cache.get(key));
+        // A display list recorded before might still draw it
+        assertFalse(bitmap.isRecycled());
+    }
+
+    @Test
+    public void resizeKeepsBitmapsDrawable() {
+        final RingBitmapCache cache = new RingBitmapCache(2);
+        cache.setSize(8, 8);
+        final Bitmap bitmap = cache.obtain(RingBitmapCache.key(9, -1));
+
+        cache.setSize(16, 16);
+        assertFalse(bitmap.isRecycled());
+    }
+
+    @Test
+    public void spinningHitsTheCache() {
+        final GestureHarness harness = new GestureHarness();
+        harness.layout.setHeaderBitmapCacheEnabled(true);
+        harness.layout.setHeaderColorSchemeColors(Color.RED, Color.GREEN, Color.BLUE);
+        harness.layout.setHeaderRefreshing(true);
+        final MaterialProgressDrawable progress = harness.layout.mProgress;
+        progress.setBounds(0, 0, 120, 120);
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(120, 120, Bitmap.Config.ARGB_8888));
+
+        // Draw the spinner at each frame, like the circle view does
+        final boolean[] drawing = {true};
+        harness.clock.postFrameCallback(new Runnable() {
+            @Override
+            public void run() {
+                progress.draw(canvas);
+                if (drawing[0]) {
+                    harness.clock.postFrameCallback(this);
+                }
+            }
+        });
+        // Eight cycles, the color changes in each of them
+        harness.advance(1332 * 8);
+        drawing[0] = false;
+
+        final RingBitmapCache cache = progress.getBitmapCache();
+        assertTrue(cache.getMissCount() > 0);
+        // Only the first cycle renders bitmaps
+        assertTrue("hit rate " + cache.getHitRate(), cache.getHitRate() > 0.8f);
+        assertEquals(cache.getHitCount(), harness.layout.getHeaderBitmapCacheHitCount());
+        assertEquals(cache.getHitRate(), harness.layout.getHeaderBitmapCacheHitRate(), 0.0f);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class ShadowBitmapCacheTest {
+
+    private static final int COLOR = 0x3d000000;
+    // An ARGB_8888 bitmap of 10x10
+    private static final int BYTES = 10 * 10 * 4;
+
+    @Before
+    public void setUp() {
+        ShadowBitmapCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowBitmapCache.setMaxBytes(ShadowBitmapCache.DEFAULT_MAX_BYTES);
+        ShadowBitmapCache.clear();
+    }
+
+    private static Bitmap get(int shadowRadius) {
+        return ShadowBitmapCache.get(10, 10, 8, shadowRadius, COLOR);
+    }
+
+    @Test
+    public void staysUnderTheByteCap() {
+        ShadowBitmapCache.setMaxBytes(BYTES * 2);
+        get(1);
+        get(2);
+        assertEquals(BYTES * 2, ShadowBitmapCache.getBytes());
+
+        get(3);
+        assertEquals(BYTES * 2, ShadowBitmapCache.getBytes());
+
+        // Lowering the cap evicts right away
+        ShadowBitmapCache.setMaxBytes(BYTES);
+        assertEquals(BYTES, ShadowBitmapCache.getBytes());
+    }
+
+    @Test
+    public void bitmapOverTheCapIsNotCached() {
+        ShadowBitmapCache.setMaxBytes(BYTES - 1);
+        final Bitmap first = get(1);
+        final Bitmap second = get(1);
+
+        assertNotSame(first, second);
+        assertEquals(0, ShadowBitmapCache.getBytes());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() {
+        ShadowBitmapCache.setMaxBytes(BYTES * 2);
+        final Bitmap first = get(1);
+        get(2);
+        // Touch the first one, so the second one is the oldest
+        assertSame(first, get(1));
+        get(3);
+
+        final int hits = ShadowBitmapCache.getHitCount();
+        final int misses = ShadowBitmapCache.getMissCount();
+        assertSame(first, get(1));
+        assertEquals(hits + 1, ShadowBitmapCache.getHitCount());
+        get(2);
+        assertEquals(misses + 1, ShadowBitmapCache.getMissCount());
+    }
+
+    // The fill shadow is only drawn from a bitmap without elevation
+    @Test
+    @Config(sdk = 19)
+    public void layoutsOfTheSameSizeShareTheShadow() {
+        final GestureHarness first = new GestureHarness();
+        final GestureHarness second = new GestureHarness();
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(GestureHarness.WIDTH,
+                GestureHarness.HEIGHT, Bitmap.Config.ARGB_8888));
+        first.layout.setHeaderRefreshing(true);
+        second.layout.setHeaderRefreshing(true);
+        first.layoutPass();
+        second.layoutPass();
+        assertTrue(first.layout.mCircleView.getWidth() > 0);
+
+        final int hits = ShadowBitmapCache.getHitCount();
+        final int misses = ShadowBitmapCache.getMissCount();
+        first.layout.mCircleView.draw(canvas);
+        second.layout.mCircleView.draw(canvas);
+
+        assertEquals(misses + 1, ShadowBitmapCache.getMissCount());
+        assertEquals(hits + 1, ShadowBitmapCache.getHitCount());
+        final CircleImageView view = first.layout.mCircleView;
+        assertEquals(view.getWidth() * view.getHeight() * 4, ShadowBitmapCache.getBytes());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SharedResourcesTest {
+
+    @Test
+    public void internSharesEqualColors() {
+        final int[] colors = {0xff000001, 0xff000002, 0xff000003};
+        final int hits = SharedResources.getColorHitCount();
+        final int[] first = SharedResources.intern(colors);
+        final int[] second = SharedResources.intern(colors.clone());
+
+        assertSame(first, second);
+        assertEquals(hits + 1, SharedResources.getColorHitCount());
+        // The caller's array is not kept
+        assertNotSame(colors, first);
+        colors[0] = 0;
+        assertArrayEquals(new int[] {0xff000001, 0xff000002, 0xff000003}, second);
+    }
+
+    @Test
+    public void internKeepsDifferentColorsApart() {
+        final int[] first = SharedResources.intern(new int[] {0xff000011, 0xff000012});
+        final int[] second = SharedResources.intern(new int[] {0xff000012, 0xff000011});
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void paintsAreShared() {
+        assertSame(SharedResources.fillPaint(), SharedResources.fillPaint());
+        assertSame(SharedResources.antiAliasFillPaint(), SharedResources.antiAliasFillPaint());
+        assertSame(SharedResources.bitmapPaint(), SharedResources.bitmapPaint());
+    }
+
+    @Test
+    public void barsWithSameColorsShareTheirSchedule() {
+        final View parent = new View(RuntimeEnvironment.application);
+        final FrameEngine engine = new FrameEngine(parent);
+        final SwipeProgressBar first = new SwipeProgressBar(parent, engine);
+        final SwipeProgressBar second = new SwipeProgressBar(parent, engine);
+        final int[] colors = {0xff000021, 0xff000022, 0xff000023};
+        first.setColorScheme(colors);
+        final int hits = SharedResources.getColorHitCount();
+
+        second.setColorScheme(colors);
+        // The colors, the phase fill colors and the ring colors
+        assertEquals(hits + 3, SharedResources.getColorHitCount());
+    }
+}
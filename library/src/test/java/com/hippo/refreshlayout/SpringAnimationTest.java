@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SpringAnimationTest {
+
+    private static final float REST_DISTANCE = 0.5f;
+
+    private static final class TestSpring extends SpringAnimation {
+        float position;
+
+        @Override
+        protected void applyPosition(float position, float fraction) {
+            this.position = position;
+        }
+    }
+
+    private static void assertSettled(float start, float velocity) {
+        final TestSpring spring = new TestSpring();
+        spring.setSpring(start, 0, velocity);
+        final long duration = spring.getDuration();
+        final String message = start + ", " + velocity + " in " + duration;
+        // Settled from the duration on
+        for (long time = duration; time < duration + 500; time += 5) {
+            assertTrue(message, Math.abs(SpringAnimation.displacement(start, velocity, time))
+                    <= REST_DISTANCE);
+            assertTrue(message, Math.abs(SpringAnimation.velocity(start, velocity, time)) * 16
+                    <= REST_DISTANCE);
+        }
+        // But not much earlier
+        if (duration > 50) {
+            final long early = duration * 3 / 4;
+            assertTrue(message, Math.abs(SpringAnimation.displacement(start, velocity, early))
+                    > REST_DISTANCE || Math.abs(SpringAnimation.velocity(start, velocity, early))
+                    * 16 > REST_DISTANCE);
+        }
+    }
+
+    @Test
+    public void durationSettlesTheSpring() {
+        assertSettled(-100, 0);
+        assertSettled(300, 0);
+        assertSettled(-300, 5);
+        assertSettled(-300, -5);
+        assertSettled(200, -8);
+        assertSettled(0, 3);
+        assertSettled(1, 0);
+    }
+
+    @Test
+    public void springAtRestHasNoDuration() {
+        final TestSpring spring = new TestSpring();
+        spring.setSpring(10.2f, 10, 0);
+        assertEquals(0, spring.getDuration());
+    }
+
+    @Test
+    public void durationIsCapped() {
+        final TestSpring spring = new TestSpring();
+        spring.setSpring(1e9f, 0, 0);
+        assertEquals(1000, spring.getDuration());
+    }
+
+    @Test
+    public void velocityIsTheOneOfTheLastFrame() {
+        final TestSpring spring = new TestSpring();
+        spring.setSpring(-200, 0, 4);
+        spring.applyTransformation(0.25f);
+        final float elapsed = 0.25f * spring.getDuration();
+
+        assertEquals(SpringAnimation.velocity(-200, 4, elapsed), spring.getVelocity(), 1e-6f);
+        assertEquals(SpringAnimation.displacement(-200, 4, elapsed), spring.position, 1e-3f);
+    }
+}
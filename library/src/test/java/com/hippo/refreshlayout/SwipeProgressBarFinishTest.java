@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout;
+
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwipeProgressBarFinishTest {
+
+    private static final int WIDTH = 96;
+    private static final int HEIGHT = 6;
+
+    private ManualFrameClock mClock;
+    private SwipeProgressBar mBar;
+
+    @Before
+    public void setUp() {
+        mClock = new ManualFrameClock(1000);
+        final FrameEngine engine = new FrameEngine(new View(RuntimeEnvironment.application));
+        engine.setClock(mClock);
+        engine.setScheduler(mClock);
+        mBar = new SwipeProgressBar(new View(RuntimeEnvironment.application), engine);
+        mBar.setBounds(0, 0, WIDTH, HEIGHT);
+    }
+
+    private RasterCanvas draw(boolean clipDifference) {
+        final RasterCanvas canvas = new RasterCanvas(WIDTH, HEIGHT);
+        mBar.mClipDifference = clipDifference;
+        mBar.draw(canvas);
+        assertEquals(1, canvas.getSaveCount());
+        return canvas;
+    }
+
+    @Test
+    public void splitFinishMatchesClipDifference() {
+        mBar.start();
+        mClock.advance(1700);
+        mBar.stop();
+
+        int clearedFrames = 0;
+        while (mBar.isRunning()) {
+            // Both renderers see the same time, the finish ends at the same draw
+            final float[] difference = draw(true).getPixels();
+            final RasterCanvas split = draw(false);
+            assertArrayEquals(difference, split.getPixels(), 0f);
+            if (split.getAlpha(WIDTH / 2, 0) == 0f && split.getAlpha(0, 0) > 0f) {
+                clearedFrames++;
+            }
+            mClock.advance(ManualFrameClock.FRAME_INTERVAL);
+        }
+        // The band is cleared from the inside out over most of the finish
+        assertTrue("cleared frames " + clearedFrames, clearedFrames > 30);
+    }
+
+    @Test
+    public void splitFinishDrawsTriggerOnce() {
+        mBar.start();
+        mClock.advance(600);
+        mBar.stop();
+        mClock.advance(300);
+        mBar.setTriggerPercentage(0.5f);
+
+        assertArrayEquals(draw(true).getPixels(), draw(false).getPixels(), 0f);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout.recyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+
+import com.hippo.refreshlayout.RefreshLayout;
+
+/**
+ * Starts footer refreshes of a {@link RefreshLayout} when a
+ * {@link RecyclerView} shows one of its last adapter positions.
+ * <p>
+ * After a load is started, no other load is started until items are
+ * inserted into the adapter, the data set changes size, or
+ * {@link #reset()} is called. Call {@link #reset()} if a load fails
+ * without adding items to retry it.
+ * </p>
+ * <p>
+ * {@link LinearLayoutManager}, {@code GridLayoutManager} and
+ * {@link StaggeredGridLayoutManager} are supported.
+ * </p>
+ */
+public class RecyclerViewFooterLoader {
+
+    private static final int DEFAULT_THRESHOLD = 5;
+
+    private final RefreshLayout mRefreshLayout;
+    private final RecyclerView mRecyclerView;
+    private RecyclerView.Adapter<?> mAdapter;
+    private int mThreshold = DEFAULT_THRESHOLD;
+
+    private boolean mAttached;
+    // Whether a load was started and no item has been added yet
+    private boolean mWaitingForItems;
+    private int mItemCountAtLoad;
+    // Reused for StaggeredGridLayoutManager
+    private int[] mSpanPositions;
+
+    private final RecyclerView.OnScrollListener mOnScrollListener =
+            new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            // Also called with 0, 0 after layout
+            if (dy >= 0) {
+                checkLoad();
+            }
+        }
+    };
+
+    private final RecyclerView.AdapterDataObserver mDataObserver =
+            new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            if (mAdapter != null && mAdapter.getItemCount() != mItemCountAtLoad) {
+                mWaitingForItems = false;
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mWaitingForItems = false;
+        }
+    };
+
+    private RecyclerViewFooterLoader(RefreshLayout refreshLayout, RecyclerView recyclerView) {
+        mRefreshLayout = refreshLayout;
+        mRecyclerView = recyclerView;
+    }
+
+    /**
+     * Attach a loader to the RecyclerView. The adapter must be set before.
+     *
+     * @param refreshLayout the layout to start footer refreshes on
+     * @param recyclerView the RecyclerView to watch
+     * @return the attached loader
+     */
+    public static RecyclerViewFooterLoader attach(@NonNull RefreshLayout refreshLayout,
+            @NonNull RecyclerView recyclerView) {
+        final RecyclerViewFooterLoader loader =
+                new RecyclerViewFooterLoader(refreshLayout, recyclerView);
+        loader.attach();
+        return loader;
+    }
+
+    private void attach() {
+        if (mAttached) {
+            return;
+        }
+        mAttached = true;
+        mRecyclerView.addOnScrollListener(mOnScrollListener);
+        setAdapter(mRecyclerView.getAdapter());
+    }
+
+    /**
+     * Stop watching the RecyclerView.
+     */
+    public void detach() {
+        if (!mAttached) {
+            return;
+        }
+        mAttached = false;
+        mRecyclerView.removeOnScrollListener(mOnScrollListener);
+        setAdapter(null);
+    }
+
+    private void setAdapter(RecyclerView.Adapter<?> adapter) {
+        if (mAdapter != null) {
+            mAdapter.unregisterAdapterDataObserver(mDataObserver);
+        }
+        mAdapter = adapter;
+        if (mAdapter != null) {
+            mAdapter.registerAdapterDataObserver(mDataObserver);
+        }
+        mWaitingForItems = false;
+    }
+
+    /**
+     * Set how many adapter positions may be left after the last visible one
+     * when a load starts. It is 5 by default.
+     *
+     * @param threshold the number of positions, 0 to load at the last position
+     */
+    public void setThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalStateException("threshold < 0");
+        }
+        mThreshold = threshold;
+    }
+
+    /**
+     * Allow a new load before any item is added, for example after a failed load.
+     */
+    public void reset() {
+        mWaitingForItems = false;
+        checkLoad();
+    }
+
+    private void checkLoad() {
+        if (!mAttached) {
+            return;
+        }
+        // The adapter might be swapped without notice
+        if (mRecyclerView.getAdapter() != mAdapter) {
+            setAdapter(mRecyclerView.getAdapter());
+        }
+        if (mAdapter == null || mWaitingForItems) {
+            return;
+        }
+        final RefreshLayout layout = mRefreshLayout;
+        if (!layout.isEnabled() || !layout.isEnableSwipeFooter() || layout.isRefreshing()) {
+            return;
+        }
+
+        final int itemCount = mAdapter.getItemCount();
+        final int lastVisible = findLastVisiblePosition(mRecyclerView.getLayoutManager());
+        if (itemCount == 0 || lastVisible == RecyclerView.NO_POSITION) {
+            return;
+        }
+        if (lastVisible >= itemCount - 1 - mThreshold) {
+            mWaitingForItems = true;
+            mItemCountAtLoad = itemCount;
+            layout.refreshFooter();
+        }
+    }
+
+    private int findLastVisiblePosition(RecyclerView.LayoutManager layoutManager) {
+        if (layoutManager instanceof LinearLayoutManager) {
+            // GridLayoutManager is a LinearLayoutManager
+            return ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            final StaggeredGridLayoutManager manager = (StaggeredGridLayoutManager) layoutManager;
+            final int spanCount = manager.getSpanCount();
+            if (mSpanPositions == null || mSpanPositions.length != spanCount) {
+                mSpanPositions = new int[spanCount];
+            }
+            manager.findLastVisibleItemPositions(mSpanPositions);
+            int last = RecyclerView.NO_POSITION;
+            for (int position : mSpanPositions) {
+                last = Math.max(last, position);
+            }
+            return last;
+        } else {
+            return RecyclerView.NO_POSITION;
+        }
+    }
+}
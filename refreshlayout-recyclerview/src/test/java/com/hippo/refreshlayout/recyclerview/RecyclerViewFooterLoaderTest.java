@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 Hippo Seven
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hippo.refreshlayout.recyclerview;
+
+import android.content.Context;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.hippo.refreshlayout.RefreshLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RecyclerViewFooterLoaderTest {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int ITEM_HEIGHT = 100;
+
+    private RefreshLayout mLayout;
+    private RecyclerView mRecyclerView;
+    private ItemAdapter mAdapter;
+    private int mFooterRefreshes;
+
+    private static final class ItemAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        int mCount = 20;
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            final View view = new View(parent.getContext());
+            view.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ITEM_HEIGHT));
+            return new RecyclerView.ViewHolder(view) {};
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {}
+
+        @Override
+        public int getItemCount() {
+            return mCount;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        final Context context = RuntimeEnvironment.application;
+        mLayout = new RefreshLayout(context);
+        mLayout.setOnRefreshListener(new RefreshLayout.OnRefreshListener() {
+            @Override
+            public void onHeaderRefresh() {}
+
+            @Override
+            public void onFooterRefresh() {
+                mFooterRefreshes++;
+            }
+        });
+        mRecyclerView = new RecyclerView(context);
+        // Inserted items show up in the next layout pass, without animations
+        mRecyclerView.setItemAnimator(null);
+        mAdapter = new ItemAdapter();
+        mRecyclerView.setAdapter(mAdapter);
+        mLayout.addView(mRecyclerView, ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+    }
+
+    private RecyclerViewFooterLoader attach(RecyclerView.LayoutManager layoutManager) {
+        mRecyclerView.setLayoutManager(layoutManager);
+        layoutPass();
+        final RecyclerViewFooterLoader loader =
+                RecyclerViewFooterLoader.attach(mLayout, mRecyclerView);
+        loader.setThreshold(0);
+        return loader;
+    }
+
+    private void layoutPass() {
+        mLayout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mLayout.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    // Scroll down to the end and back up a screen, like a user would
+    private void scrollToEndAndBack() {
+        mRecyclerView.scrollBy(0, mAdapter.mCount * ITEM_HEIGHT);
+        mRecyclerView.scrollBy(0, -HEIGHT);
+    }
+
+    // The app finished the load
+    private void finishLoad() {
+        mLayout.setFooterRefreshing(false);
+    }
+
+    @Test
+    public void noReloadUntilItemsAreInserted() {
+        attach(new LinearLayoutManager(RuntimeEnvironment.application));
+        scrollToEndAndBack();
+        assertEquals(1, mFooterRefreshes);
+
+        // A load that added nothing doesn't start another one
+        finishLoad();
+        scrollToEndAndBack();
+        assertEquals(1, mFooterRefreshes);
+
+        mAdapter.mCount += 10;
+        mAdapter.notifyItemRangeInserted(20, 10);
+        layoutPass();
+        scrollToEndAndBack();
+        assertEquals(2, mFooterRefreshes);
+    }
+
+    @Test
+    public void changeOfTheSameCountDoesNotAllowReload() {
+        attach(new LinearLayoutManager(RuntimeEnvironment.application));
+        scrollToEndAndBack();
+        assertEquals(1, mFooterRefreshes);
+        finishLoad();
+
+        // The items were rebound, but there is no new one
+        mAdapter.notifyDataSetChanged();
+        layoutPass();
+        scrollToEndAndBack();
+        assertEquals(1, mFooterRefreshes);
+
+        mAdapter.mCount += 10;
+        mAdapter.notifyDataSetChanged();
+        layoutPass();
+        scrollToEndAndBack();
+        assertEquals(2, mFooterRefreshes);
+    }
+
+    @Test
+    public void resetAllowsReload() {
+        final RecyclerViewFooterLoader loader =
+                attach(new LinearLayoutManager(RuntimeEnvironment.application));
+        mRecyclerView.scrollBy(0, mAdapter.mCount * ITEM_HEIGHT);
+        assertEquals(1, mFooterRefreshes);
+        finishLoad();
+
+        // Retry a failed load at the bottom
+        loader.reset();
+        assertEquals(2, mFooterRefreshes);
+    }
+
+    @Test
+    public void staggeredGridLoadsAtTheLastPositionOfAnySpan() {
+        final StaggeredGridLayoutManager layoutManager =
+                new StaggeredGridLayoutManager(2, StaggeredGridLayoutManager.VERTICAL);
+        // An odd count, the last item is only in one span
+        mAdapter.mCount = 41;
+        attach(layoutManager);
+        assertEquals(0, mFooterRefreshes);
+
+        final int[] positions = new int[2];
+        int steps = 0;
+        while (mFooterRefreshes == 0) {
+            assertTrue(++steps < 100);
+            mRecyclerView.scrollBy(0, ITEM_HEIGHT / 4);
+            layoutManager.findLastVisibleItemPositions(positions);
+        }
+        // The last position of one span is enough
+        assertEquals(mAdapter.mCount - 1, Math.max(positions[0], positions[1]));
+        assertTrue(Math.min(positions[0], positions[1]) < mAdapter.mCount - 1);
+    }
+}